@@ -2,6 +2,7 @@ plugins {
 	java
 	id("org.springframework.boot") version "3.4.3"
 	id("io.spring.dependency-management") version "1.1.7"
+	id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.sporty"
@@ -19,18 +20,22 @@ repositories {
 
 dependencies {
 	implementation("org.springframework.boot:spring-boot-starter-webflux")
+	implementation("org.springframework.boot:spring-boot-starter-actuator")
 	implementation("org.springframework.boot:spring-boot-starter-validation")
 	implementation("org.springframework.boot:spring-boot-starter-data-r2dbc")
 	implementation("org.springdoc:springdoc-openapi-starter-webflux-ui:2.8.5")
+	implementation("com.github.ben-manes.caffeine:caffeine")
 
 	implementation("org.mapstruct:mapstruct:1.6.3")
 	implementation("org.liquibase:liquibase-core")
 	implementation("org.springframework:spring-jdbc")
+	implementation("com.zaxxer:HikariCP")
 	implementation("org.postgresql:r2dbc-postgresql")
 
 	compileOnly("org.projectlombok:lombok:1.18.36")
 
 	runtimeOnly("org.postgresql:postgresql")
+	runtimeOnly("io.micrometer:micrometer-registry-prometheus")
 
 	annotationProcessor("org.projectlombok:lombok:1.18.36")
 	annotationProcessor("org.mapstruct:mapstruct-processor:1.6.3")
@@ -49,3 +54,10 @@ dependencies {
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+jmh {
+	warmupIterations = 2
+	iterations = 5
+	fork = 1
+	profilers = listOf("gc")
+}
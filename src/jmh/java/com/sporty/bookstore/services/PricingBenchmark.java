@@ -0,0 +1,82 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.dtos.BookItem;
+import com.sporty.bookstore.dtos.OrderDetails;
+import com.sporty.bookstore.dtos.OrderPriceInfo;
+import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.models.BookType;
+import com.sporty.bookstore.utils.DiscountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Measures quote pricing for orders of 1 to 100 000 distinct books. Run with {@code ./gradlew jmh};
+ * the GC profiler reports the allocation rate next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PricingBenchmark {
+
+    @Param({"1", "10", "1000", "100000"})
+    private int items;
+
+    @Param({"NEW_RELEASES", "REGULAR", "OLD_EDITIONS", "MIXED"})
+    private String mix;
+
+    private PricingEngine pricingEngine;
+    private OrderDetails orderDetails;
+    private Map<Long, Book> booksMap;
+    private Map<Long, Integer> bookQuantityMap;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        var types = BookType.values();
+
+        pricingEngine = new PricingEngine();
+        booksMap = LongStream.rangeClosed(1, items)
+            .mapToObj(id -> {
+                var book = new Book();
+                book.setId(id);
+                book.setTitle("Book " + id);
+                book.setPrice(BigDecimal.valueOf(100 + random.nextInt(10_000), 2));
+                book.setType("MIXED".equals(mix) ? types[random.nextInt(types.length)] : BookType.valueOf(mix));
+                return book;
+            })
+            .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        List<BookItem> bookItems = booksMap.keySet().stream()
+            .map(id -> new BookItem(id, 1 + random.nextInt(10)))
+            .toList();
+        orderDetails = new OrderDetails(1L, null, bookItems);
+        bookQuantityMap = bookItems.stream()
+            .collect(Collectors.toMap(BookItem::bookId, BookItem::quantity, Integer::sum));
+    }
+
+    @Benchmark
+    public OrderPriceInfo calculateBookPrices() {
+        return pricingEngine.calculateBookPrices(orderDetails, booksMap, bookQuantityMap);
+    }
+
+    @Benchmark
+    public BigDecimal applyDiscount() {
+        var book = booksMap.get(1L);
+        return DiscountUtil.applyDiscount(book.getPrice(), DiscountUtil.getDiscount(book, items));
+    }
+}
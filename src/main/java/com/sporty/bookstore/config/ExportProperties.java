@@ -0,0 +1,13 @@
+package com.sporty.bookstore.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the streaming NDJSON / Server-Sent Events exports.
+ *
+ * @param fetchSize number of rows the driver fetches per round trip while an export is consumed
+ */
+@ConfigurationProperties("bookstore.export")
+public record ExportProperties(@DefaultValue("500") int fetchSize) {
+}
@@ -0,0 +1,63 @@
+package com.sporty.bookstore.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Infrastructure of the {@code jdbc} profile, in which checkouts without an idempotency key run over JDBC instead of
+ * R2DBC. Spring Boot backs
+ * off from its DataSource while an R2DBC connection factory exists, so the HikariCP pool is declared here and
+ * configured with {@code spring.datasource.*} and {@code spring.datasource.hikari.*}; {@code JdbcClient} is then
+ * auto-configured on top of it.
+ */
+@Configuration
+@Profile("jdbc")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class JdbcConfig {
+
+    public static final String TRANSACTION_TEMPLATE = "jdbcTransactionTemplate";
+    public static final String SCHEDULER = "jdbcScheduler";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties,
+                                       ObjectProvider<JdbcConnectionDetails> connectionDetails) {
+        var builder = properties.initializeDataSourceBuilder().type(HikariDataSource.class);
+        connectionDetails.ifAvailable(details -> builder.url(details.getJdbcUrl())
+            .username(details.getUsername())
+            .password(details.getPassword()));
+        return builder.build();
+    }
+
+    /**
+     * Not registered as a transaction manager bean, so {@code @Transactional} and {@code TransactionalOperator}
+     * keep resolving to the R2DBC one.
+     */
+    @Bean(TRANSACTION_TEMPLATE)
+    public TransactionTemplate jdbcTransactionTemplate(HikariDataSource dataSource) {
+        return new TransactionTemplate(new JdbcTransactionManager(dataSource));
+    }
+
+    /**
+     * Runs every blocking call on a new virtual thread. Concurrency is bounded by the pool size instead of
+     * a thread count.
+     */
+    @Bean(name = SCHEDULER, destroyMethod = "dispose")
+    public Scheduler jdbcScheduler() {
+        return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "jdbc");
+    }
+}
@@ -0,0 +1,30 @@
+package com.sporty.bookstore.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sporty.bookstore.services.FileOrderEventSink;
+import com.sporty.bookstore.services.InMemoryOrderEventSink;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Selects the sink the outbox relay publishes to with {@code bookstore.outbox.sink}. Another sink is plugged in
+ * by registering an {@link com.sporty.bookstore.services.OrderEventSink} bean and choosing a different value.
+ */
+@Configuration
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "bookstore.outbox.sink", havingValue = "in-memory", matchIfMissing = true)
+    public InMemoryOrderEventSink inMemoryOrderEventSink() {
+        return new InMemoryOrderEventSink();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "bookstore.outbox.sink", havingValue = "file")
+    public FileOrderEventSink fileOrderEventSink(OutboxProperties outboxProperties, ObjectMapper objectMapper) {
+        return new FileOrderEventSink(outboxProperties.file(), objectMapper);
+    }
+}
@@ -0,0 +1,28 @@
+package com.sporty.bookstore.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of the order event outbox relay.
+ *
+ * @param relayEnabled whether this instance publishes outbox events
+ * @param batchSize    maximum number of events published per transaction
+ * @param pollInterval pause between relay runs once the outbox is drained
+ * @param sink         where events are published: {@code in-memory} or {@code file}
+ * @param file         NDJSON file the {@code file} sink appends to
+ * @param retention    how long published events are kept before the relay deletes them
+ */
+@ConfigurationProperties("bookstore.outbox")
+public record OutboxProperties(
+    @DefaultValue("true") boolean relayEnabled,
+    @DefaultValue("100") int batchSize,
+    @DefaultValue("1s") Duration pollInterval,
+    @DefaultValue("in-memory") String sink,
+    @DefaultValue("order-events.ndjson") Path file,
+    @DefaultValue("7d") Duration retention
+) {
+}
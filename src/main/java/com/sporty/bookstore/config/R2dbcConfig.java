@@ -2,9 +2,12 @@ package com.sporty.bookstore.config;
 
 import com.sporty.bookstore.entities.converters.BookTypeWriteConverter;
 import com.sporty.bookstore.models.BookType;
+import io.r2dbc.postgresql.PostgresqlConnectionFactoryProvider;
 import io.r2dbc.postgresql.codec.EnumCodec;
 import io.r2dbc.spi.Option;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.r2dbc.config.EnableR2dbcAuditing;
@@ -19,6 +22,7 @@ import java.util.List;
 @EnableR2dbcAuditing
 @EnableR2dbcRepositories
 @EnableTransactionManagement
+@EnableConfigurationProperties(ExportProperties.class)
 public class R2dbcConfig {
 
     @Bean
@@ -28,6 +32,17 @@ public class R2dbcConfig {
         ));
     }
 
+    /**
+     * Bounds the driver's per-connection cache of prepared statements. Repository queries bind their arguments,
+     * so repeated calls reuse the parsed and planned statement; 0 disables the cache.
+     */
+    @Bean
+    public ConnectionFactoryOptionsBuilderCustomizer preparedStatementCacheCustomizer(
+        @Value("${bookstore.r2dbc.prepared-statement-cache-queries:256}") int preparedStatementCacheQueries) {
+        return builder -> builder.option(PostgresqlConnectionFactoryProvider.PREPARED_STATEMENT_CACHE_QUERIES,
+            preparedStatementCacheQueries);
+    }
+
     @Bean
     public R2dbcCustomConversions r2dbcCustomConversions() {
         return R2dbcCustomConversions.of(PostgresDialect.INSTANCE, List.of(new BookTypeWriteConverter()));
@@ -0,0 +1,94 @@
+package com.sporty.bookstore.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactoryProvider;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcConnectionDetails;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured pool so that it is sized by {@link R2dbcPoolProperties} and times connection
+ * acquisition. Connection settings still come from {@code spring.r2dbc.*}, {@code spring.r2dbc.pool.*} is ignored.
+ * The application uses a {@link ReadReplicaRoutingConnectionFactory} over this pool and the optional replica pool.
+ */
+@Configuration
+@EnableConfigurationProperties({R2dbcPoolProperties.class, R2dbcReplicaProperties.class})
+public class R2dbcPoolConfig {
+
+    public static final String PRIMARY_POOL = "primaryConnectionPool";
+    public static final String REPLICA_POOL = "replicaConnectionPool";
+
+    @Bean(name = PRIMARY_POOL, destroyMethod = "dispose")
+    public ConnectionPool primaryConnectionPool(R2dbcConnectionDetails connectionDetails, R2dbcPoolProperties pool,
+                                                ObjectProvider<ConnectionFactoryOptionsBuilderCustomizer> customizers,
+                                                MeterRegistry meterRegistry) {
+        var options = connectionDetails.getConnectionFactoryOptions().mutate();
+        return createPool("primary", options, pool, customizers, meterRegistry);
+    }
+
+    @Bean(name = REPLICA_POOL, destroyMethod = "dispose")
+    @ConditionalOnProperty("bookstore.r2dbc-replica.url")
+    public ConnectionPool replicaConnectionPool(R2dbcReplicaProperties replica, R2dbcPoolProperties pool,
+                                                ObjectProvider<ConnectionFactoryOptionsBuilderCustomizer> customizers,
+                                                MeterRegistry meterRegistry) {
+        var options = ConnectionFactoryOptions.parse(replica.url()).mutate()
+            // A query routed to the replica by mistake fails instead of writing
+            .option(PostgresqlConnectionFactoryProvider.OPTIONS, Map.of("default_transaction_read_only", "on"));
+        var map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        map.from(replica.username()).whenHasText().to(username -> options.option(ConnectionFactoryOptions.USER, username));
+        map.from(replica.password()).whenHasText().to(password -> options.option(ConnectionFactoryOptions.PASSWORD, password));
+        return createPool("replica", options, pool, customizers, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public ReadReplicaRoutingConnectionFactory connectionFactory(@Qualifier(PRIMARY_POOL) ConnectionPool primaryConnectionPool,
+                                                                 @Qualifier(REPLICA_POOL) ObjectProvider<ConnectionPool> replicaConnectionPool) {
+        var connectionFactory = new ReadReplicaRoutingConnectionFactory();
+        connectionFactory.setDefaultTargetConnectionFactory(primaryConnectionPool);
+        var replica = replicaConnectionPool.getIfAvailable();
+        connectionFactory.setTargetConnectionFactories(replica == null
+            ? Map.of()
+            : Map.of(ReadReplicaRoutingConnectionFactory.REPLICA, replica));
+        return connectionFactory;
+    }
+
+    private static ConnectionPool createPool(String name, ConnectionFactoryOptions.Builder options, R2dbcPoolProperties pool,
+                                             ObjectProvider<ConnectionFactoryOptionsBuilderCustomizer> customizers,
+                                             MeterRegistry meterRegistry) {
+        customizers.orderedStream().forEach(customizer -> customizer.customize(options));
+        var connectionFactory = ConnectionFactories.get(options.build());
+        if (connectionFactory instanceof ConnectionPool) {
+            throw new IllegalStateException("Configure the pool with bookstore.r2dbc-pool instead of an r2dbc:pool: url");
+        }
+
+        var builder = ConnectionPoolConfiguration.builder(connectionFactory)
+            .name(name)
+            .initialSize(pool.initialSize())
+            .maxSize(pool.maxSize())
+            .minIdle(pool.minIdle())
+            .acquireRetry(pool.acquireRetry())
+            .validationDepth(pool.validationDepth());
+        var map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        map.from(pool.maxIdleTime()).to(builder::maxIdleTime);
+        map.from(pool.maxLifeTime()).to(builder::maxLifeTime);
+        map.from(pool.maxAcquireTime()).to(builder::maxAcquireTime);
+        map.from(pool.maxCreateConnectionTime()).to(builder::maxCreateConnectionTime);
+        map.from(pool.backgroundEvictionInterval()).to(builder::backgroundEvictionInterval);
+        map.from(pool.validationQuery()).whenHasText().to(builder::validationQuery);
+        return new TimedConnectionPool(builder.build(), name, meterRegistry);
+    }
+}
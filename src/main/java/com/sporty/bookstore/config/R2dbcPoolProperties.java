@@ -0,0 +1,47 @@
+package com.sporty.bookstore.config;
+
+import io.r2dbc.spi.ValidationDepth;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the R2DBC connection pool. Unset durations keep the r2dbc-pool defaults.
+ *
+ * @param initialSize                number of connections opened by the startup warm-up
+ * @param maxSize                    maximum number of open connections
+ * @param minIdle                    number of idle connections the pool keeps open
+ * @param maxIdleTime                time after which an idle connection is closed
+ * @param maxLifeTime                time after which a connection is closed once it is released
+ * @param maxAcquireTime             time a caller waits for a connection before the acquisition fails
+ * @param maxCreateConnectionTime    time a new connection may take to open
+ * @param acquireRetry               number of retries when opening a connection fails
+ * @param backgroundEvictionInterval interval of the background eviction of idle and expired connections
+ * @param validationQuery            query validating a connection on acquisition, the driver's validation when unset
+ * @param validationDepth            depth of the driver's validation when no validation query is set
+ * @param warmup                     startup warm-up of the pool
+ */
+@ConfigurationProperties("bookstore.r2dbc-pool")
+public record R2dbcPoolProperties(
+    @DefaultValue("10") int initialSize,
+    @DefaultValue("10") int maxSize,
+    @DefaultValue("0") int minIdle,
+    @DefaultValue("30m") Duration maxIdleTime,
+    Duration maxLifeTime,
+    @DefaultValue("5s") Duration maxAcquireTime,
+    @DefaultValue("5s") Duration maxCreateConnectionTime,
+    @DefaultValue("1") int acquireRetry,
+    Duration backgroundEvictionInterval,
+    String validationQuery,
+    @DefaultValue("LOCAL") ValidationDepth validationDepth,
+    @DefaultValue Warmup warmup
+) {
+
+    /**
+     * @param enabled whether connections are opened and hot queries prepared before the application is ready
+     * @param timeout time the warm-up may take before the application is reported ready anyway
+     */
+    public record Warmup(@DefaultValue("true") boolean enabled, @DefaultValue("30s") Duration timeout) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.sporty.bookstore.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Optional read replica. Without a url every query goes to the primary; the replica pool is sized like the primary.
+ *
+ * @param url      R2DBC url of the replica
+ * @param username user of the replica, the url's user when unset
+ * @param password password of the replica, the url's password when unset
+ */
+@ConfigurationProperties("bookstore.r2dbc-replica")
+public record R2dbcReplicaProperties(String url, String username, String password) {
+}
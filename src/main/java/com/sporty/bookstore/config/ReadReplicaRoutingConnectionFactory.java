@@ -0,0 +1,39 @@
+package com.sporty.bookstore.config;
+
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sends connections requested by a pipeline marked with {@link #readOnly(Mono)} or {@link #readOnly(Flux)} to the
+ * read replica, and everything else to the primary. A transaction keeps the connection it began with, so queries of
+ * a transaction started on the primary stay there even when marked. Without a configured replica marked pipelines
+ * fall back to the primary.
+ */
+public class ReadReplicaRoutingConnectionFactory extends AbstractRoutingConnectionFactory {
+
+    static final String REPLICA = "replica";
+
+    private static final String READ_ONLY_KEY = ReadReplicaRoutingConnectionFactory.class.getName() + ".READ_ONLY";
+
+    /**
+     * Marks a non-transactional read that may see data slightly behind the primary.
+     */
+    public static <T> Mono<T> readOnly(Mono<T> read) {
+        return read.contextWrite(context -> context.put(READ_ONLY_KEY, true));
+    }
+
+    /**
+     * Marks a non-transactional read that may see data slightly behind the primary.
+     */
+    public static <T> Flux<T> readOnly(Flux<T> read) {
+        return read.contextWrite(context -> context.put(READ_ONLY_KEY, true));
+    }
+
+    @Override
+    protected Mono<Object> determineCurrentLookupKey() {
+        return Mono.deferContextual(context -> context.getOrDefault(READ_ONLY_KEY, false)
+            ? Mono.just(REPLICA)
+            : Mono.empty());
+    }
+}
@@ -0,0 +1,45 @@
+package com.sporty.bookstore.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import reactor.core.publisher.Mono;
+
+/**
+ * Connection pool recording how long callers wait for a connection. The pool's own metrics only cover
+ * opening new connections, not waiting for a free one.
+ */
+class TimedConnectionPool extends ConnectionPool {
+
+    static final String ACQUIRE_TIMER = "bookstore.r2dbc.pool.acquire";
+
+    private final Timer acquiredTimer;
+    private final Timer failedTimer;
+
+    TimedConnectionPool(ConnectionPoolConfiguration configuration, String name, MeterRegistry meterRegistry) {
+        super(configuration);
+        this.acquiredTimer = acquireTimer(meterRegistry, name, "success");
+        this.failedTimer = acquireTimer(meterRegistry, name, "failure");
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            var sample = Timer.start();
+            return super.create()
+                .doOnSuccess(connection -> sample.stop(acquiredTimer))
+                .doOnError(error -> sample.stop(failedTimer));
+        });
+    }
+
+    private static Timer acquireTimer(MeterRegistry meterRegistry, String pool, String outcome) {
+        return Timer.builder(ACQUIRE_TIMER)
+            .description("Time spent waiting for a pooled connection")
+            .tag("pool", pool)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+}
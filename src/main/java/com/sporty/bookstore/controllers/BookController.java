@@ -1,34 +1,81 @@
 package com.sporty.bookstore.controllers;
 
+import com.sporty.bookstore.config.ExportProperties;
+import com.sporty.bookstore.dtos.BookChange;
 import com.sporty.bookstore.dtos.BookData;
+import com.sporty.bookstore.dtos.BookFilter;
+import com.sporty.bookstore.dtos.BookImportSummary;
 import com.sporty.bookstore.dtos.BookUpdate;
+import com.sporty.bookstore.dtos.CursorPage;
+import com.sporty.bookstore.dtos.PageParams;
 import com.sporty.bookstore.entities.Book;
 import com.sporty.bookstore.exceptions.types.BookNotFoundException;
 import com.sporty.bookstore.mappers.BookMapper;
 import com.sporty.bookstore.repositories.BookRepository;
+import com.sporty.bookstore.services.BookCatalogueCache;
+import com.sporty.bookstore.services.BookChangeFeed;
+import com.sporty.bookstore.services.BookImportService;
+import com.sporty.bookstore.services.OptimisticLockRetry;
+import com.sporty.bookstore.services.QuoteCache;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
+import static com.sporty.bookstore.config.ReadReplicaRoutingConnectionFactory.readOnly;
+
 @RestController
 @RequestMapping("/books")
 @AllArgsConstructor
 public class BookController {
 
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final Duration CHANGES_HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
     private final BookRepository bookRepository;
     private final BookMapper bookMapper;
+    private final BookCatalogueCache bookCatalogueCache;
+    private final BookImportService bookImportService;
+    private final BookChangeFeed bookChangeFeed;
+    private final QuoteCache quoteCache;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final ExportProperties exportProperties;
 
     @GetMapping
-    public Flux<Book> getBooks() {
-        return bookRepository.findAll();
+    public Mono<CursorPage<Book>> getBooks(@Valid @ParameterObject BookFilter filter,
+                                           @Valid @ParameterObject PageParams page) {
+        return readOnly(bookRepository.findPage(filter.bookType(), filter.minPrice(), filter.maxPrice(),
+                page.afterOrDefault(), page.limitOrDefault() + 1)
+            .collectList()
+            .map(books -> CursorPage.of(books, page.limitOrDefault(), Book::getId)));
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Book> streamBooks(@Valid @ParameterObject BookFilter filter) {
+        return readOnly(bookRepository.streamAll(filter.bookType(), filter.minPrice(), filter.maxPrice(),
+            exportProperties.fetchSize()));
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<BookChange>> streamChanges() {
+        // Heartbeats send the response headers right away and keep idle connections from being closed by proxies
+        var heartbeats = Flux.interval(Duration.ZERO, CHANGES_HEARTBEAT_INTERVAL)
+            .map(tick -> ServerSentEvent.<BookChange>builder().comment("heartbeat").build());
+        var changes = bookChangeFeed.changes()
+            .map(change -> ServerSentEvent.builder(change).event("book-change").build());
+        return Flux.merge(heartbeats, changes);
     }
 
     @GetMapping("/{id}")
     public Mono<Book> getBook(@PathVariable Long id) {
-        return bookRepository.findById(id)
+        return readOnly(bookRepository.findById(id))
             .switchIfEmpty(Mono.error(new BookNotFoundException(id)));
     }
 
@@ -40,15 +87,32 @@ public class BookController {
             .flatMap(bookRepository::save);
     }
 
+    @PostMapping(value = "/import", consumes = TEXT_CSV_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookImportSummary> importBooksCsv(@RequestBody Flux<String> lines) {
+        return bookImportService.importCsv(lines);
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookImportSummary> importBooksNdjson(@RequestBody Flux<String> lines) {
+        return bookImportService.importNdjson(lines);
+    }
+
     @PatchMapping("/{id}")
     public Mono<Book> updateBook(@PathVariable Long id, @Valid @RequestBody Mono<BookUpdate> bookUpdate) {
-        return bookRepository.findById(id)
-            .switchIfEmpty(Mono.error(new BookNotFoundException(id)))
-            .flatMap(book -> bookUpdate.map(update -> {
-                bookMapper.updateBookFromDto(update, book);
-                return book;
-            }))
-            .flatMap(bookRepository::save);
+        // The body can only be read once, but a retry reads the book again
+        var cachedBookUpdate = bookUpdate.cache();
+        return optimisticLockRetry.withRetry(bookRepository.findById(id)
+                .switchIfEmpty(Mono.error(new BookNotFoundException(id)))
+                .flatMap(book -> cachedBookUpdate.map(update -> {
+                    bookMapper.updateBookFromDto(update, book);
+                    return book;
+                }))
+                .flatMap(bookRepository::save))
+            .doOnSuccess(book -> {
+                bookCatalogueCache.invalidate(id);
+                quoteCache.invalidateBook(id);
+            });
     }
 
     @DeleteMapping("/{id}")
@@ -56,6 +120,10 @@ public class BookController {
     public Mono<Void> deleteBook(@PathVariable Long id) {
         return bookRepository.findById(id)
             .switchIfEmpty(Mono.error(new BookNotFoundException(id)))
-            .flatMap(book -> bookRepository.deleteById(book.getId()));
+            .flatMap(book -> bookRepository.deleteById(book.getId()))
+            .doOnSuccess(ignored -> {
+                bookCatalogueCache.invalidate(id);
+                quoteCache.invalidateBook(id);
+            });
     }
 }
@@ -1,13 +1,22 @@
 package com.sporty.bookstore.controllers;
 
+import com.sporty.bookstore.dtos.CursorPage;
+import com.sporty.bookstore.dtos.OrderBatchResult;
 import com.sporty.bookstore.dtos.OrderDetails;
+import com.sporty.bookstore.dtos.OrderFilter;
 import com.sporty.bookstore.dtos.OrderPriceInfo;
+import com.sporty.bookstore.dtos.PageParams;
 import com.sporty.bookstore.entities.Order;
 import com.sporty.bookstore.repositories.OrderRepository;
+import com.sporty.bookstore.services.CheckoutLanes;
+import com.sporty.bookstore.services.IdempotentOrderService;
+import com.sporty.bookstore.services.OrderBatchService;
 import com.sporty.bookstore.services.OrderService;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -18,23 +27,43 @@ import reactor.core.publisher.Mono;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderBatchService orderBatchService;
+    private final IdempotentOrderService idempotentOrderService;
+    private final CheckoutLanes checkoutLanes;
     private final OrderRepository orderRepository;
 
     @GetMapping
-    public Flux<Order> getOrders() {
-        return orderService.findAll();
+    public Mono<CursorPage<Order>> getOrders(@Valid @ParameterObject OrderFilter filter,
+                                             @Valid @ParameterObject PageParams page) {
+        return orderService.findPage(filter, page);
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Order> streamOrders(@Valid @ParameterObject OrderFilter filter) {
+        return orderService.streamAll(filter);
     }
 
     @PostMapping()
     @ResponseStatus(HttpStatus.CREATED)
-    public Mono<Order> createOrder(@Valid @RequestBody Mono<OrderDetails> orderDetails) {
-        return orderService.createOrder(orderDetails);
+    public Mono<Order> createOrder(@RequestHeader(name = IdempotentOrderService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                   @Valid @RequestBody Mono<OrderDetails> orderDetails) {
+        return idempotencyKey == null
+            ? orderDetails.flatMap(details ->
+                checkoutLanes.submit(details.userId(), orderService.createOrder(Mono.just(details))))
+            : idempotentOrderService.createOrder(idempotencyKey, orderDetails);
+    }
+
+    @PostMapping(value = "/batch",
+        consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<OrderBatchResult> createOrders(@RequestBody Flux<OrderDetails> orderDetails) {
+        return orderBatchService.createOrders(orderDetails);
     }
 
     @PostMapping("/calculate-price")
     @ResponseStatus(HttpStatus.OK)
     public Mono<OrderPriceInfo> getOrderPriceInfo(@Valid @RequestBody Mono<OrderDetails> orderDetails) {
-        return orderService.getOrderPriceInfo(orderDetails);
+        return orderService.getQuote(orderDetails);
     }
 
 }
@@ -1,18 +1,34 @@
 package com.sporty.bookstore.controllers;
 
 import com.sporty.bookstore.dtos.AddBalance;
+import com.sporty.bookstore.dtos.BalanceCredit;
+import com.sporty.bookstore.dtos.BalanceCreditSummary;
+import com.sporty.bookstore.dtos.CursorPage;
+import com.sporty.bookstore.dtos.OrderFilter;
+import com.sporty.bookstore.dtos.PageParams;
 import com.sporty.bookstore.dtos.UserData;
+import com.sporty.bookstore.entities.Order;
 import com.sporty.bookstore.entities.User;
+import com.sporty.bookstore.entities.UserOrderStats;
 import com.sporty.bookstore.exceptions.types.UserNotFoundException;
 import com.sporty.bookstore.mappers.UserMapper;
+import com.sporty.bookstore.repositories.UserOrderStatsRepository;
 import com.sporty.bookstore.repositories.UserRepository;
+import com.sporty.bookstore.services.OrderService;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static com.sporty.bookstore.config.ReadReplicaRoutingConnectionFactory.readOnly;
+
 @RestController
 @RequestMapping("/users")
 @AllArgsConstructor
@@ -20,15 +36,33 @@ public class UserController {
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final UserOrderStatsRepository userOrderStatsRepository;
+    private final OrderService orderService;
 
     @GetMapping
-    public Flux<User> getUsers() {
-        return userRepository.findAll();
+    public Mono<CursorPage<User>> getUsers(@Valid @ParameterObject PageParams page) {
+        return readOnly(userRepository.findAllByIdGreaterThanOrderById(page.afterOrDefault(), PageRequest.ofSize(page.limitOrDefault() + 1))
+            .collectList()
+            .map(users -> CursorPage.of(users, page.limitOrDefault(), User::getId)));
     }
 
     @GetMapping("/{id}")
     public Mono<User> getUser(@PathVariable Long id) {
-        return userRepository.findById(id)
+        return readOnly(userRepository.findById(id))
+            .switchIfEmpty(Mono.error(new UserNotFoundException(id)));
+    }
+
+    @GetMapping("/{id}/orders")
+    public Mono<CursorPage<Order>> getUserOrders(@PathVariable Long id, @Valid @ParameterObject PageParams page) {
+        return readOnly(userRepository.existsById(id))
+            .flatMap(exists -> exists
+                ? orderService.findPage(new OrderFilter(id, null, null), page)
+                : Mono.error(new UserNotFoundException(id)));
+    }
+
+    @GetMapping("/{id}/summary")
+    public Mono<UserOrderStats> getUserSummary(@PathVariable Long id) {
+        return readOnly(userOrderStatsRepository.findByUserId(id))
             .switchIfEmpty(Mono.error(new UserNotFoundException(id)));
     }
 
@@ -42,12 +76,22 @@ public class UserController {
 
     @PatchMapping("/{id}/balance/add")
     public Mono<User> addBalance(@PathVariable Long id, @Valid @RequestBody Mono<AddBalance> newBalance) {
-        return userRepository.findById(id)
-            .switchIfEmpty(Mono.error(new UserNotFoundException(id)))
-            .flatMap(user -> newBalance.map(update -> {
-                user.setBalance(user.getBalance().add(update.amount()));
-                return user;
-            }))
-            .flatMap(userRepository::save);
+        return newBalance
+            .flatMap(update -> userRepository.addBalance(id, update.amount()))
+            .switchIfEmpty(Mono.error(new UserNotFoundException(id)));
+    }
+
+    @PatchMapping("/balance/add")
+    public Mono<BalanceCreditSummary> addBalances(@Valid @RequestBody Flux<BalanceCredit> credits) {
+        return credits.collectList()
+            .flatMap(creditList -> userRepository.addBalances(creditList)
+                .collect(Collectors.toSet())
+                .map(creditedIds -> {
+                    var notFoundIds = creditList.stream()
+                        .map(BalanceCredit::id)
+                        .filter(id -> !creditedIds.contains(id))
+                        .collect(Collectors.toCollection(TreeSet::new));
+                    return new BalanceCreditSummary(creditedIds.size(), notFoundIds);
+                }));
     }
 }
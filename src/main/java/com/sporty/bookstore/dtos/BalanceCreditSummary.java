@@ -0,0 +1,6 @@
+package com.sporty.bookstore.dtos;
+
+import java.util.Set;
+
+public record BalanceCreditSummary(int creditedUsers, Set<Long> notFoundIds) {
+}
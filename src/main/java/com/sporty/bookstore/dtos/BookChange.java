@@ -0,0 +1,12 @@
+package com.sporty.bookstore.dtos;
+
+import com.sporty.bookstore.models.BookType;
+
+import java.math.BigDecimal;
+
+/**
+ * A change of a book's price or type, or its deletion. {@code operation} is {@code UPDATE} or {@code DELETE};
+ * price and type are absent for deletions.
+ */
+public record BookChange(Long id, String operation, BigDecimal price, BookType type) {
+}
@@ -0,0 +1,22 @@
+package com.sporty.bookstore.dtos;
+
+import com.sporty.bookstore.models.BookType;
+import com.sporty.bookstore.validation.IsEnum;
+import jakarta.validation.constraints.PositiveOrZero;
+
+import java.math.BigDecimal;
+
+public record BookFilter(
+    @IsEnum(enumClass = BookType.class, message = "Book type must be valid enum value")
+    String type,
+
+    @PositiveOrZero(message = "Min price must not be negative")
+    BigDecimal minPrice,
+
+    @PositiveOrZero(message = "Max price must not be negative")
+    BigDecimal maxPrice
+) {
+    public BookType bookType() {
+        return type == null ? null : BookType.valueOf(type);
+    }
+}
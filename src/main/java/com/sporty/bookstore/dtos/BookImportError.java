@@ -0,0 +1,11 @@
+package com.sporty.bookstore.dtos;
+
+import com.sporty.bookstore.exceptions.FieldError;
+
+import java.util.List;
+
+/**
+ * A rejected import row. {@code line} is the one-based line number of the row in the request body.
+ */
+public record BookImportError(long line, List<FieldError> errors) {
+}
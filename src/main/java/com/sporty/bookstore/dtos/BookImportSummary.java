@@ -0,0 +1,10 @@
+package com.sporty.bookstore.dtos;
+
+import java.util.List;
+
+/**
+ * Progress of an import after one chunk. {@code accepted} and {@code rejected} count all rows so far,
+ * {@code errors} only lists the rows rejected in this chunk.
+ */
+public record BookImportSummary(long accepted, long rejected, List<BookImportError> errors) {
+}
@@ -4,6 +4,9 @@ import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
+/**
+ * A book of an order. Items of the same book are merged, and {@link #MAX_QUANTITY} also bounds their total.
+ */
 public record BookItem(
     @NotNull(message = "Book id can not be null")
     @Positive(message = "Book id must be positive")
@@ -11,7 +14,8 @@ public record BookItem(
 
     @NotNull(message = "Quantity can not be null")
     @Positive(message = "Quantity must be positive")
-    @Max(value = 10, message = "Quantity must not exceed 10")
+    @Max(value = BookItem.MAX_QUANTITY, message = "Quantity must not exceed 10")
     Integer quantity
 ) {
+    public static final int MAX_QUANTITY = 10;
 }
@@ -3,7 +3,7 @@ package com.sporty.bookstore.dtos;
 import java.math.BigDecimal;
 import java.util.Objects;
 
-public record BookPriceItem(Long bookId, BigDecimal price, double discount) {
+public record BookPriceItem(Long bookId, BigDecimal price, double discount, Integer quantity) {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -11,6 +11,7 @@ public record BookPriceItem(Long bookId, BigDecimal price, double discount) {
         BookPriceItem that = (BookPriceItem) o;
         return Double.compare(discount, that.discount) == 0 &&
             Objects.equals(bookId, that.bookId) &&
+            Objects.equals(quantity, that.quantity) &&
             (price == null ? that.price == null :
                 price.compareTo(that.price) == 0);
     }
@@ -20,7 +21,8 @@ public record BookPriceItem(Long bookId, BigDecimal price, double discount) {
         return Objects.hash(
             bookId,
             price != null ? price.stripTrailingZeros() : null,
-            discount
+            discount,
+            quantity
         );
     }
 }
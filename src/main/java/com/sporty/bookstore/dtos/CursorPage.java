@@ -0,0 +1,18 @@
+package com.sporty.bookstore.dtos;
+
+import java.util.List;
+import java.util.function.Function;
+
+public record CursorPage<T>(List<T> items, Long nextCursor) {
+
+    /**
+     * Builds a page from rows fetched with {@code limit + 1}: the extra row only signals that another page exists.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, Long> cursorExtractor) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        var items = List.copyOf(rows.subList(0, limit));
+        return new CursorPage<>(items, cursorExtractor.apply(items.getLast()));
+    }
+}
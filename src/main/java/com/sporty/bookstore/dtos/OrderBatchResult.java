@@ -0,0 +1,18 @@
+package com.sporty.bookstore.dtos;
+
+import com.sporty.bookstore.entities.Order;
+import com.sporty.bookstore.exceptions.ErrorResponse;
+
+/**
+ * Outcome of one order of a batch. {@code index} is the zero-based position of the order in the request body.
+ */
+public record OrderBatchResult(long index, Order order, ErrorResponse error) {
+
+    public static OrderBatchResult success(long index, Order order) {
+        return new OrderBatchResult(index, order, null);
+    }
+
+    public static OrderBatchResult failure(long index, ErrorResponse error) {
+        return new OrderBatchResult(index, null, error);
+    }
+}
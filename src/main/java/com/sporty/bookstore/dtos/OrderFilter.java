@@ -0,0 +1,15 @@
+package com.sporty.bookstore.dtos;
+
+import jakarta.validation.constraints.Positive;
+
+import java.time.Instant;
+
+public record OrderFilter(
+    @Positive(message = "User id must be positive")
+    Long userId,
+
+    Instant from,
+
+    Instant to
+) {
+}
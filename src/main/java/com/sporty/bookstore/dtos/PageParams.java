@@ -0,0 +1,23 @@
+package com.sporty.bookstore.dtos;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+
+public record PageParams(
+    @Positive(message = "After cursor must be positive")
+    Long after,
+
+    @Positive(message = "Limit must be positive")
+    @Max(value = 100, message = "Limit must not exceed 100")
+    Integer limit
+) {
+    private static final int DEFAULT_LIMIT = 20;
+
+    public long afterOrDefault() {
+        return after == null ? 0 : after;
+    }
+
+    public int limitOrDefault() {
+        return limit == null ? DEFAULT_LIMIT : limit;
+    }
+}
@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 
 import java.time.Instant;
@@ -21,4 +22,8 @@ public abstract class BaseEntity {
     @LastModifiedDate
     @Column("updated_at")
     private Instant updatedAt;
+
+    @Version
+    @Column("version")
+    private Long version;
 }
@@ -23,13 +23,4 @@ public class Book extends BaseEntity {
 
     @Column("type")
     private BookType type;
-
-    public Book copy() {
-        Book copy = new Book();
-        copy.setId(this.getId());
-        copy.setTitle(this.title);
-        copy.setPrice(this.price);
-        copy.setType(this.type);
-        return copy;
-    }
 }
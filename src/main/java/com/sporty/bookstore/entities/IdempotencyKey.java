@@ -0,0 +1,34 @@
+package com.sporty.bookstore.entities;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@Table("idempotency_keys")
+public class IdempotencyKey {
+
+    @Id
+    @Column("idempotency_key")
+    private String key;
+
+    @Column("user_id")
+    private Long userId;
+
+    @Column("request_hash")
+    private String requestHash;
+
+    @Column("order_id")
+    private Long orderId;
+
+    @Column("response")
+    private String response;
+
+    @Column("created_at")
+    private Instant createdAt;
+}
@@ -0,0 +1,37 @@
+package com.sporty.bookstore.entities;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@Table("order_events")
+public class OrderEvent {
+
+    public static final String ORDER_CREATED = "ORDER_CREATED";
+
+    @Id
+    private Long id;
+
+    @Column("order_id")
+    private Long orderId;
+
+    @Column("event_type")
+    private String eventType;
+
+    @JsonRawValue
+    @Column("payload")
+    private String payload;
+
+    @Column("created_at")
+    private Instant createdAt;
+
+    @Column("published_at")
+    private Instant publishedAt;
+}
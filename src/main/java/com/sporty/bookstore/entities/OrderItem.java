@@ -24,4 +24,7 @@ public class OrderItem extends BaseEntity {
 
     @Column("price")
     private BigDecimal price;
+
+    @Column("quantity")
+    private Integer quantity;
 }
@@ -0,0 +1,29 @@
+package com.sporty.bookstore.entities;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@Table("user_order_stats")
+public class UserOrderStats {
+
+    @Id
+    @Column("user_id")
+    private Long userId;
+
+    @Column("order_count")
+    private Long orderCount;
+
+    @Column("total_spent")
+    private BigDecimal totalSpent;
+
+    @Column("last_order_at")
+    private Instant lastOrderAt;
+}
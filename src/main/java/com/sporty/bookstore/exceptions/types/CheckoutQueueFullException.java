@@ -0,0 +1,7 @@
+package com.sporty.bookstore.exceptions.types;
+
+public class CheckoutQueueFullException extends TooManyRequestsException {
+    public CheckoutQueueFullException(Long userId) {
+        super("Too many pending orders for user with id %d".formatted(userId));
+    }
+}
@@ -0,0 +1,11 @@
+package com.sporty.bookstore.exceptions.types;
+
+public class IdempotencyKeyReusedException extends BadRequestException {
+    public IdempotencyKeyReusedException(String key) {
+        this(key, "another user");
+    }
+
+    public IdempotencyKeyReusedException(String key, String usedBy) {
+        super("Idempotency key %s was already used by %s".formatted(key, usedBy));
+    }
+}
@@ -0,0 +1,7 @@
+package com.sporty.bookstore.exceptions.types;
+
+public class InvalidIdempotencyKeyException extends BadRequestException {
+    public InvalidIdempotencyKeyException(int maxLength) {
+        super("Idempotency key must not be blank and must not exceed %d characters".formatted(maxLength));
+    }
+}
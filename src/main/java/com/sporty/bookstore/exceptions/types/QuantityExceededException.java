@@ -0,0 +1,7 @@
+package com.sporty.bookstore.exceptions.types;
+
+public class QuantityExceededException extends BadRequestException {
+    public QuantityExceededException(Long bookId, int maxQuantity) {
+        super("Quantity of book with id %d must not exceed %d in total".formatted(bookId, maxQuantity));
+    }
+}
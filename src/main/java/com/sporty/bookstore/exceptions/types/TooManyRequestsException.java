@@ -0,0 +1,7 @@
+package com.sporty.bookstore.exceptions.types;
+
+public abstract class TooManyRequestsException extends RuntimeException {
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
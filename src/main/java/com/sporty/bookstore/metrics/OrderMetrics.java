@@ -0,0 +1,58 @@
+package com.sporty.bookstore.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Times the stages of the order pipeline as {@code bookstore.order.stage}, tagged by stage and outcome.
+ */
+@Component
+@AllArgsConstructor
+public class OrderMetrics {
+
+    public static final String STAGE_TIMER = "bookstore.order.stage";
+    public static final String CHECKOUT_COUNTER = "bookstore.order.checkouts";
+
+    private final MeterRegistry meterRegistry;
+
+    public <T> Mono<T> timed(String stage, Mono<T> stageMono) {
+        return Mono.defer(() -> {
+            var sample = Timer.start(meterRegistry);
+            return stageMono
+                .doOnSuccess(ignored -> sample.stop(stageTimer(stage, "success")))
+                .doOnError(error -> sample.stop(stageTimer(stage, error.getClass().getSimpleName())))
+                .doOnCancel(() -> sample.stop(stageTimer(stage, "cancelled")));
+        });
+    }
+
+    public <T> T timed(String stage, Supplier<T> stageSupplier) {
+        var sample = Timer.start(meterRegistry);
+        var outcome = "success";
+        try {
+            return stageSupplier.get();
+        } catch (RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(stageTimer(stage, outcome));
+        }
+    }
+
+    public <T> Mono<T> countedCheckout(Mono<T> checkout) {
+        return checkout
+            .doOnSuccess(ignored -> meterRegistry.counter(CHECKOUT_COUNTER, "outcome", "success").increment())
+            .doOnError(error -> meterRegistry.counter(CHECKOUT_COUNTER, "outcome", error.getClass().getSimpleName()).increment());
+    }
+
+    private Timer stageTimer(String stage, String outcome) {
+        return Timer.builder(STAGE_TIMER)
+            .tag("stage", stage)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,15 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.dtos.BookData;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface BookImportRepository {
+
+    /**
+     * Loads the books with a single {@code COPY ... FROM STDIN} and emits the number of inserted rows.
+     * The books must already be validated; an invalid row fails the whole statement.
+     */
+    Mono<Long> copyAll(List<BookData> books);
+}
@@ -0,0 +1,55 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.dtos.BookData;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Wrapped;
+import lombok.AllArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@AllArgsConstructor
+class BookImportRepositoryImpl implements BookImportRepository {
+
+    private static final String COPY_BOOKS = "COPY books (title, price, type) FROM STDIN WITH (FORMAT csv)";
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Mono<Long> copyAll(List<BookData> books) {
+        if (books.isEmpty()) {
+            return Mono.just(0L);
+        }
+        // Runs on the transaction's connection when there is one, like any other DatabaseClient statement
+        return databaseClient.inConnection(connection -> unwrap(connection)
+            .copyIn(COPY_BOOKS, Flux.fromIterable(books).map(BookImportRepositoryImpl::toCsvRow)));
+    }
+
+    private static ByteBuf toCsvRow(BookData book) {
+        var row = "%s,%s,%s\n".formatted(quote(book.title()), book.price().toPlainString(), book.type());
+        return Unpooled.wrappedBuffer(row.getBytes(UTF_8));
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // The pool and Spring's transaction support hand out wrappers around the driver connection
+    private static PostgresqlConnection unwrap(Connection connection) {
+        Object current = connection;
+        while (!(current instanceof PostgresqlConnection) && current instanceof Wrapped<?> wrapped) {
+            current = wrapped.unwrap();
+        }
+        if (current instanceof PostgresqlConnection postgresqlConnection) {
+            return postgresqlConnection;
+        }
+        throw new IllegalStateException("COPY requires a PostgreSQL connection but got " + connection.getClass().getName());
+    }
+}
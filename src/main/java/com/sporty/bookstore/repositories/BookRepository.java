@@ -1,9 +1,18 @@
 package com.sporty.bookstore.repositories;
 
 import com.sporty.bookstore.entities.Book;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 
 @Repository
-public interface BookRepository extends ReactiveCrudRepository<Book, Long> {
+public interface BookRepository extends ReactiveCrudRepository<Book, Long>, BookSearchRepository, BookImportRepository {
+
+    /**
+     * Same as {@link #findAllById(Iterable)}, but the ids are bound as one array, so the statement text and
+     * its cached prepared statement are the same for any number of ids.
+     */
+    @Query(CheckoutStatements.FIND_BOOKS_BY_IDS)
+    Flux<Book> findAllByIds(Long[] ids);
 }
@@ -0,0 +1,22 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.models.BookType;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+
+public interface BookSearchRepository {
+
+    /**
+     * Returns up to {@code limit} books with an id greater than {@code after}, ordered by id.
+     * Null filter values are not applied.
+     */
+    Flux<Book> findPage(BookType type, BigDecimal minPrice, BigDecimal maxPrice, long after, int limit);
+
+    /**
+     * Streams all books matching the filters, ordered by id. Rows are fetched from the database
+     * {@code fetchSize} at a time as the result is consumed.
+     */
+    Flux<Book> streamAll(BookType type, BigDecimal minPrice, BigDecimal maxPrice, int fetchSize);
+}
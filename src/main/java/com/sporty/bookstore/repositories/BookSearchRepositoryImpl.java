@@ -0,0 +1,68 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.models.BookType;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+
+@AllArgsConstructor
+class BookSearchRepositoryImpl implements BookSearchRepository {
+
+    private final R2dbcEntityTemplate entityTemplate;
+
+    @Override
+    public Flux<Book> findPage(BookType type, BigDecimal minPrice, BigDecimal maxPrice, long after, int limit) {
+        var criteria = Criteria.where("id").greaterThan(after);
+        if (type != null) {
+            criteria = criteria.and("type").is(type);
+        }
+        if (minPrice != null) {
+            criteria = criteria.and("price").greaterThanOrEquals(minPrice);
+        }
+        if (maxPrice != null) {
+            criteria = criteria.and("price").lessThanOrEquals(maxPrice);
+        }
+
+        return entityTemplate.select(Book.class)
+            .matching(Query.query(criteria).sort(Sort.by("id")).limit(limit))
+            .all();
+    }
+
+    @Override
+    public Flux<Book> streamAll(BookType type, BigDecimal minPrice, BigDecimal maxPrice, int fetchSize) {
+        var conditions = new ArrayList<String>();
+        if (type != null) {
+            conditions.add("type = :type");
+        }
+        if (minPrice != null) {
+            conditions.add("price >= :minPrice");
+        }
+        if (maxPrice != null) {
+            conditions.add("price <= :maxPrice");
+        }
+
+        var where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+        var spec = entityTemplate.getDatabaseClient()
+            .sql("SELECT * FROM books" + where + " ORDER BY id")
+            .filter(statement -> statement.fetchSize(fetchSize));
+        if (type != null) {
+            spec = spec.bind("type", type);
+        }
+        if (minPrice != null) {
+            spec = spec.bind("minPrice", minPrice);
+        }
+        if (maxPrice != null) {
+            spec = spec.bind("maxPrice", maxPrice);
+        }
+
+        return spec.map((row, metadata) -> entityTemplate.getConverter().read(Book.class, row, metadata))
+            .all();
+    }
+}
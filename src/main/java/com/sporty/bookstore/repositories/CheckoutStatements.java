@@ -0,0 +1,49 @@
+package com.sporty.bookstore.repositories;
+
+/**
+ * Statements of a checkout used both by the R2DBC repositories and by {@link JdbcCheckoutRepository}, so that
+ * both checkout modes send the same SQL.
+ */
+final class CheckoutStatements {
+
+    static final String FIND_BOOKS_BY_IDS = "SELECT * FROM books WHERE id = ANY(:ids)";
+
+    static final String DEBIT_BALANCE_AND_UPDATE_LOYALTY = """
+        UPDATE users
+        SET balance = balance - :amount,
+            loyalty = CASE WHEN :resetLoyalty THEN 0 ELSE loyalty + :loyaltyPoints END,
+            updated_at = CURRENT_TIMESTAMP,
+            version = version + 1
+        WHERE id = :id AND balance >= :amount AND (NOT :resetLoyalty OR loyalty >= 10)
+        RETURNING *
+        """;
+
+    // Four array parameters regardless of the number of items, so the statement stays the same for any order size
+    // and one prepared statement serves every checkout. The ORDER BY assigns the ids in the given order, RETURNING
+    // itself guarantees no order
+    static final String INSERT_ORDER_ITEMS = """
+        INSERT INTO order_items (order_id, book_id, price, quantity)
+        SELECT item.order_id, item.book_id, item.price, item.quantity
+        FROM unnest(CAST(:orderIds AS bigint[]), CAST(:bookIds AS bigint[]), CAST(:prices AS numeric[]),
+                    CAST(:quantities AS int[]))
+            WITH ORDINALITY AS item(order_id, book_id, price, quantity, position)
+        ORDER BY item.position
+        RETURNING *
+        """;
+
+    static final String RECORD_ORDER = """
+        INSERT INTO user_order_stats (user_id, order_count, total_spent, last_order_at)
+        VALUES (:userId, 1, :amount, :orderedAt)
+        ON CONFLICT (user_id) DO UPDATE
+        SET order_count = user_order_stats.order_count + 1,
+            total_spent = user_order_stats.total_spent + EXCLUDED.total_spent,
+            last_order_at = GREATEST(user_order_stats.last_order_at, EXCLUDED.last_order_at),
+            updated_at = CURRENT_TIMESTAMP
+        """;
+
+    static final String APPEND_ORDER_EVENT =
+        "INSERT INTO order_events (order_id, event_type, payload) VALUES (:orderId, :eventType, CAST(:payload AS jsonb))";
+
+    private CheckoutStatements() {
+    }
+}
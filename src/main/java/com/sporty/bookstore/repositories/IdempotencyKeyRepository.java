@@ -0,0 +1,54 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.entities.IdempotencyKey;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+@Repository
+public interface IdempotencyKeyRepository extends ReactiveCrudRepository<IdempotencyKey, String> {
+
+    /**
+     * Claims the key for the current transaction together with the hash of the request it was claimed for.
+     * Emits nothing when the key already exists; a concurrent transaction holding the same key makes this
+     * statement wait until that transaction ends.
+     */
+    @Query("""
+        INSERT INTO idempotency_keys (idempotency_key, user_id, request_hash)
+        VALUES (:key, :userId, :requestHash)
+        ON CONFLICT (idempotency_key) DO NOTHING
+        RETURNING *
+        """)
+    Mono<IdempotencyKey> reserve(String key, Long userId, String requestHash);
+
+    @Modifying
+    @Query("UPDATE idempotency_keys SET order_id = :orderId, response = CAST(:response AS jsonb) WHERE idempotency_key = :key")
+    Mono<Integer> complete(String key, Long orderId, String response);
+
+    /**
+     * Deletes up to {@code limit} of the keys claimed before {@code before}, oldest first, and emits the number
+     * deleted.
+     */
+    @Modifying
+    @Query("""
+        DELETE FROM idempotency_keys
+        WHERE idempotency_key IN (
+            SELECT idempotency_key FROM idempotency_keys
+            WHERE created_at < :before
+            ORDER BY created_at
+            LIMIT :limit
+        )
+        """)
+    Mono<Integer> deleteCreatedBefore(Instant before, int limit);
+
+    @Query("""
+        SELECT idempotency_key, user_id, request_hash, order_id, response::text AS response, created_at
+        FROM idempotency_keys
+        WHERE idempotency_key = :key
+        """)
+    Mono<IdempotencyKey> findByKey(String key);
+}
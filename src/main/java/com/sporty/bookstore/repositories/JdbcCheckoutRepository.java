@@ -0,0 +1,155 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.entities.BaseEntity;
+import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.entities.Order;
+import com.sporty.bookstore.entities.OrderItem;
+import com.sporty.bookstore.entities.User;
+import com.sporty.bookstore.models.BookType;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Blocking counterpart of the statements a checkout runs through the R2DBC repositories, for the {@code jdbc}
+ * profile. Shares their SQL through {@link CheckoutStatements}. Callers provide the transaction and must not call it
+ * from a non-blocking thread.
+ */
+@Repository
+@Profile("jdbc")
+@AllArgsConstructor
+public class JdbcCheckoutRepository {
+
+    private final JdbcClient jdbcClient;
+
+    /**
+     * See {@link BookRepository#findAllByIds(Long[])}.
+     */
+    public List<Book> findBooksByIds(Collection<Long> ids) {
+        return jdbcClient.sql(CheckoutStatements.FIND_BOOKS_BY_IDS)
+            .param("ids", new SqlArrayValue("bigint", ids.toArray()))
+            .query(JdbcCheckoutRepository::toBook)
+            .list();
+    }
+
+    public Optional<User> findUserById(Long id) {
+        return jdbcClient.sql("SELECT * FROM users WHERE id = :id")
+            .param("id", id)
+            .query(JdbcCheckoutRepository::toUser)
+            .optional();
+    }
+
+    /**
+     * See {@link UserRepository#debitBalanceAndUpdateLoyalty(Long, BigDecimal, boolean, int)}.
+     */
+    public Optional<User> debitBalanceAndUpdateLoyalty(Long id, BigDecimal amount, boolean resetLoyalty, int loyaltyPoints) {
+        return jdbcClient.sql(CheckoutStatements.DEBIT_BALANCE_AND_UPDATE_LOYALTY)
+            .param("id", id)
+            .param("amount", amount)
+            .param("resetLoyalty", resetLoyalty)
+            .param("loyaltyPoints", loyaltyPoints)
+            .query(JdbcCheckoutRepository::toUser)
+            .optional();
+    }
+
+    public Order insertOrder(Long userId, BigDecimal totalPrice) {
+        return jdbcClient.sql("INSERT INTO orders (user_id, total_price) VALUES (:userId, :totalPrice) RETURNING *")
+            .param("userId", userId)
+            .param("totalPrice", totalPrice)
+            .query(JdbcCheckoutRepository::toOrder)
+            .single();
+    }
+
+    /**
+     * See {@link OrderItemBatchRepository#insertAll(List)}.
+     */
+    public List<OrderItem> insertOrderItems(List<OrderItem> orderItems) {
+        if (orderItems.isEmpty()) {
+            return List.of();
+        }
+
+        return jdbcClient.sql(CheckoutStatements.INSERT_ORDER_ITEMS)
+            .param("orderIds", new SqlArrayValue("bigint", orderItems.stream().map(OrderItem::getOrderId).toArray()))
+            .param("bookIds", new SqlArrayValue("bigint", orderItems.stream().map(OrderItem::getBookId).toArray()))
+            .param("prices", new SqlArrayValue("numeric", orderItems.stream().map(OrderItem::getPrice).toArray()))
+            .param("quantities", new SqlArrayValue("integer", orderItems.stream().map(OrderItem::getQuantity).toArray()))
+            .query(JdbcCheckoutRepository::toOrderItem)
+            .list()
+            .stream()
+            .sorted(Comparator.comparing(OrderItem::getId))
+            .toList();
+    }
+
+    /**
+     * See {@link UserOrderStatsRepository#recordOrder(Long, BigDecimal, Instant)}.
+     */
+    public void recordOrder(Long userId, BigDecimal amount, Instant orderedAt) {
+        jdbcClient.sql(CheckoutStatements.RECORD_ORDER)
+            .param("userId", userId)
+            .param("amount", amount)
+            // The driver binds java.time values only as their offset or local variants
+            .param("orderedAt", orderedAt.atOffset(ZoneOffset.UTC))
+            .update();
+    }
+
+    public void appendOrderEvent(Long orderId, String eventType, String payload) {
+        jdbcClient.sql(CheckoutStatements.APPEND_ORDER_EVENT)
+            .param("orderId", orderId)
+            .param("eventType", eventType)
+            .param("payload", payload)
+            .update();
+    }
+
+    private static Book toBook(ResultSet rs, int rowNum) throws SQLException {
+        var book = new Book();
+        book.setTitle(rs.getString("title"));
+        book.setPrice(rs.getBigDecimal("price"));
+        book.setType(BookType.valueOf(rs.getString("type")));
+        setBaseColumns(book, rs);
+        return book;
+    }
+
+    private static User toUser(ResultSet rs, int rowNum) throws SQLException {
+        var user = new User();
+        user.setName(rs.getString("name"));
+        user.setBalance(rs.getBigDecimal("balance"));
+        user.setLoyalty(rs.getInt("loyalty"));
+        setBaseColumns(user, rs);
+        return user;
+    }
+
+    private static Order toOrder(ResultSet rs, int rowNum) throws SQLException {
+        var order = new Order(rs.getLong("user_id"), rs.getBigDecimal("total_price"));
+        setBaseColumns(order, rs);
+        return order;
+    }
+
+    private static OrderItem toOrderItem(ResultSet rs, int rowNum) throws SQLException {
+        // The book reference is cleared when the book is deleted
+        var bookId = rs.getLong("book_id");
+        var item = new OrderItem(rs.getLong("order_id"), rs.wasNull() ? null : bookId,
+            rs.getBigDecimal("price"), rs.getInt("quantity"));
+        setBaseColumns(item, rs);
+        return item;
+    }
+
+    private static void setBaseColumns(BaseEntity entity, ResultSet rs) throws SQLException {
+        entity.setId(rs.getLong("id"));
+        entity.setCreatedAt(rs.getObject("created_at", OffsetDateTime.class).toInstant());
+        entity.setUpdatedAt(rs.getObject("updated_at", OffsetDateTime.class).toInstant());
+        entity.setVersion(rs.getLong("version"));
+    }
+}
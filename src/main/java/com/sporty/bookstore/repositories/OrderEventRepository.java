@@ -0,0 +1,56 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.entities.OrderEvent;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+@Repository
+public interface OrderEventRepository extends ReactiveCrudRepository<OrderEvent, Long> {
+
+    @Modifying
+    @Query(CheckoutStatements.APPEND_ORDER_EVENT)
+    Mono<Integer> append(Long orderId, String eventType, String payload);
+
+    /**
+     * Locks up to {@code limit} of the oldest unpublished events until the calling transaction ends.
+     * Events locked by another relay are skipped instead of waited for.
+     */
+    @Query("""
+        SELECT id, order_id, event_type, payload::text AS payload, created_at, published_at
+        FROM order_events
+        WHERE published_at IS NULL
+        ORDER BY id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """)
+    Flux<OrderEvent> lockUnpublished(int limit);
+
+    @Modifying
+    @Query("UPDATE order_events SET published_at = CURRENT_TIMESTAMP WHERE id = ANY(:ids)")
+    Mono<Integer> markPublished(Long[] ids);
+
+    /**
+     * Deletes up to {@code limit} of the events published before {@code before}, oldest first, and emits the number
+     * deleted.
+     */
+    @Modifying
+    @Query("""
+        DELETE FROM order_events
+        WHERE id IN (
+            SELECT id FROM order_events
+            WHERE published_at < :before
+            ORDER BY published_at
+            LIMIT :limit
+        )
+        """)
+    Mono<Integer> deletePublishedBefore(Instant before, int limit);
+
+    @Query("SELECT created_at FROM order_events WHERE published_at IS NULL ORDER BY id LIMIT 1")
+    Mono<Instant> findOldestUnpublishedCreatedAt();
+}
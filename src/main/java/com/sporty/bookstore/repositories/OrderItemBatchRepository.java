@@ -0,0 +1,15 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.entities.OrderItem;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface OrderItemBatchRepository {
+
+    /**
+     * Inserts all items with a single statement and emits the persisted rows in the given order, which is also
+     * the order of their ids.
+     */
+    Flux<OrderItem> insertAll(List<OrderItem> orderItems);
+}
@@ -0,0 +1,33 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.entities.OrderItem;
+import lombok.AllArgsConstructor;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+
+@AllArgsConstructor
+class OrderItemBatchRepositoryImpl implements OrderItemBatchRepository {
+
+    private final R2dbcEntityTemplate entityTemplate;
+
+    @Override
+    public Flux<OrderItem> insertAll(List<OrderItem> orderItems) {
+        if (orderItems.isEmpty()) {
+            return Flux.empty();
+        }
+
+        return entityTemplate.getDatabaseClient()
+            .sql(CheckoutStatements.INSERT_ORDER_ITEMS)
+            .bind("orderIds", orderItems.stream().map(OrderItem::getOrderId).toArray(Long[]::new))
+            .bind("bookIds", orderItems.stream().map(OrderItem::getBookId).toArray(Long[]::new))
+            .bind("prices", orderItems.stream().map(OrderItem::getPrice).toArray(BigDecimal[]::new))
+            .bind("quantities", orderItems.stream().map(OrderItem::getQuantity).toArray(Integer[]::new))
+            .map((row, metadata) -> entityTemplate.getConverter().read(OrderItem.class, row, metadata))
+            .all()
+            .sort(Comparator.comparing(OrderItem::getId));
+    }
+}
@@ -6,7 +6,7 @@ import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 
 @Repository
-public interface OrderItemRepository extends ReactiveCrudRepository<OrderItem, Long> {
+public interface OrderItemRepository extends ReactiveCrudRepository<OrderItem, Long>, OrderItemBatchRepository {
 
     Flux<OrderItem> findAllByOrderId(Long orderId);
 
@@ -5,6 +5,6 @@ import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface OrderRepository extends ReactiveCrudRepository<Order, Long> {
+public interface OrderRepository extends ReactiveCrudRepository<Order, Long>, OrderWithItemsRepository {
 
 }
@@ -0,0 +1,22 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.entities.Order;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+
+public interface OrderWithItemsRepository {
+
+    /**
+     * Streams all orders matching the filters, ordered by id and with their items populated, reading both tables
+     * with a single joined query. Rows are fetched from the database {@code fetchSize} at a time as the result
+     * is consumed.
+     */
+    Flux<Order> findAllWithItems(Long userId, Instant from, Instant to, int fetchSize);
+
+    /**
+     * Returns up to {@code limit} orders with an id greater than {@code after}, ordered by id and with their items
+     * populated. Null filter values are not applied; {@code to} is exclusive.
+     */
+    Flux<Order> findPageWithItems(Long userId, Instant from, Instant to, long after, int limit);
+}
@@ -0,0 +1,124 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.entities.Order;
+import com.sporty.bookstore.entities.OrderItem;
+import io.r2dbc.spi.Readable;
+import lombok.AllArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+@AllArgsConstructor
+class OrderWithItemsRepositoryImpl implements OrderWithItemsRepository {
+
+    private static final String SELECT_ORDERS_WITH_ITEMS = """
+        SELECT o.id, o.user_id, o.total_price, o.created_at, o.updated_at, o.version,
+               oi.id AS item_id, oi.book_id AS item_book_id, oi.price AS item_price,
+               oi.quantity AS item_quantity, oi.created_at AS item_created_at, oi.updated_at AS item_updated_at,
+               oi.version AS item_version
+        FROM orders_page o
+        LEFT JOIN order_items oi ON oi.order_id = o.id
+        ORDER BY o.id, oi.id
+        """;
+
+    private static final String SELECT_ORDERS_PAGE = """
+        WITH orders_page AS (
+            SELECT * FROM orders
+            WHERE %s
+            ORDER BY id
+            LIMIT %s
+        )
+        """;
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<Order> findAllWithItems(Long userId, Instant from, Instant to, int fetchSize) {
+        // The fetch size makes the driver read the result through a portal in batches instead of all at once
+        return toOrders(selectWithItems(userId, from, to, 0, null)
+            .filter(statement -> statement.fetchSize(fetchSize)));
+    }
+
+    @Override
+    public Flux<Order> findPageWithItems(Long userId, Instant from, Instant to, long after, int limit) {
+        return toOrders(selectWithItems(userId, from, to, after, limit));
+    }
+
+    private DatabaseClient.GenericExecuteSpec selectWithItems(Long userId, Instant from, Instant to, long after, Integer limit) {
+        var conditions = new ArrayList<>(List.of("id > :after"));
+        if (userId != null) {
+            conditions.add("user_id = :userId");
+        }
+        if (from != null) {
+            conditions.add("created_at >= :from");
+        }
+        if (to != null) {
+            conditions.add("created_at < :to");
+        }
+
+        var sql = SELECT_ORDERS_PAGE.formatted(String.join(" AND ", conditions), limit == null ? "ALL" : ":limit")
+            + SELECT_ORDERS_WITH_ITEMS;
+
+        var spec = databaseClient.sql(sql)
+            .bind("after", after);
+        if (limit != null) {
+            spec = spec.bind("limit", limit);
+        }
+        if (userId != null) {
+            spec = spec.bind("userId", userId);
+        }
+        if (from != null) {
+            spec = spec.bind("from", from);
+        }
+        if (to != null) {
+            spec = spec.bind("to", to);
+        }
+        return spec;
+    }
+
+    private Flux<Order> toOrders(DatabaseClient.GenericExecuteSpec spec) {
+        // Rows arrive ordered by order id, so only the rows of the order being assembled are buffered
+        return spec.map(OrderWithItemsRepositoryImpl::toOrderRow)
+            .all()
+            .bufferUntilChanged(orderRow -> orderRow.order().getId())
+            .map(OrderWithItemsRepositoryImpl::toOrder);
+    }
+
+    private static Order toOrder(List<OrderRow> orderRows) {
+        var order = orderRows.getFirst().order();
+        order.setOrderItems(orderRows.stream()
+            .map(OrderRow::item)
+            .filter(Objects::nonNull)
+            .toList());
+        return order;
+    }
+
+    private static OrderRow toOrderRow(Readable row) {
+        var order = new Order(row.get("user_id", Long.class), row.get("total_price", BigDecimal.class));
+        order.setId(row.get("id", Long.class));
+        order.setCreatedAt(row.get("created_at", Instant.class));
+        order.setUpdatedAt(row.get("updated_at", Instant.class));
+        order.setVersion(row.get("version", Long.class));
+
+        var itemId = row.get("item_id", Long.class);
+        if (itemId == null) {
+            return new OrderRow(order, null);
+        }
+
+        var item = new OrderItem(order.getId(), row.get("item_book_id", Long.class),
+            row.get("item_price", BigDecimal.class), row.get("item_quantity", Integer.class));
+        item.setId(itemId);
+        item.setCreatedAt(row.get("item_created_at", Instant.class));
+        item.setUpdatedAt(row.get("item_updated_at", Instant.class));
+        item.setVersion(row.get("item_version", Long.class));
+        return new OrderRow(order, item);
+    }
+
+    private record OrderRow(Order order, OrderItem item) {
+    }
+}
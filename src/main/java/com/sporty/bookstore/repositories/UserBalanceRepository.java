@@ -0,0 +1,15 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.dtos.BalanceCredit;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface UserBalanceRepository {
+
+    /**
+     * Applies all credits with a single statement and emits the ids of the credited users. Credits for the same
+     * user are summed up first, so each user row is updated once.
+     */
+    Flux<Long> addBalances(List<BalanceCredit> credits);
+}
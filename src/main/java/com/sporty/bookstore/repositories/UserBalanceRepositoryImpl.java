@@ -0,0 +1,46 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.dtos.BalanceCredit;
+import lombok.AllArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@AllArgsConstructor
+class UserBalanceRepositoryImpl implements UserBalanceRepository {
+
+    // Two array parameters regardless of the number of credits, so the statement stays the same for any batch size
+    private static final String ADD_BALANCES = """
+        UPDATE users u
+        SET balance = u.balance + c.amount,
+            updated_at = CURRENT_TIMESTAMP,
+            version = u.version + 1
+        FROM (
+            SELECT id, SUM(amount) AS amount
+            FROM unnest(CAST(:ids AS bigint[]), CAST(:amounts AS numeric[])) AS credit(id, amount)
+            GROUP BY id
+        ) c
+        WHERE u.id = c.id
+        RETURNING u.id
+        """;
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<Long> addBalances(List<BalanceCredit> credits) {
+        if (credits.isEmpty()) {
+            return Flux.empty();
+        }
+
+        var ids = credits.stream().map(BalanceCredit::id).toArray(Long[]::new);
+        var amounts = credits.stream().map(BalanceCredit::amount).toArray(BigDecimal[]::new);
+
+        return databaseClient.sql(ADD_BALANCES)
+            .bind("ids", ids)
+            .bind("amounts", amounts)
+            .map(row -> row.get("id", Long.class))
+            .all();
+    }
+}
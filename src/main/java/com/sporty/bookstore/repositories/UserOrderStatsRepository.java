@@ -0,0 +1,35 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.entities.UserOrderStats;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Repository
+public interface UserOrderStatsRepository extends ReactiveCrudRepository<UserOrderStats, Long> {
+
+    /**
+     * Adds one order to the user's stats, creating them for the first order. Locks the user's stats row
+     * until the calling transaction ends.
+     */
+    @Query(CheckoutStatements.RECORD_ORDER + "RETURNING user_id, order_count, total_spent, last_order_at")
+    Mono<UserOrderStats> recordOrder(Long userId, BigDecimal amount, Instant orderedAt);
+
+    /**
+     * Returns the user's stats, all zero when the user has not ordered yet. Emits nothing when the user does not exist.
+     */
+    @Query("""
+        SELECT u.id AS user_id,
+               COALESCE(s.order_count, 0) AS order_count,
+               COALESCE(s.total_spent, 0.00) AS total_spent,
+               s.last_order_at
+        FROM users u
+        LEFT JOIN user_order_stats s ON s.user_id = u.id
+        WHERE u.id = :userId
+        """)
+    Mono<UserOrderStats> findByUserId(Long userId);
+}
@@ -1,9 +1,39 @@
 package com.sporty.bookstore.repositories;
 
 import com.sporty.bookstore.entities.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
 
 @Repository
-public interface UserRepository extends ReactiveCrudRepository<User, Long> {
+public interface UserRepository extends ReactiveCrudRepository<User, Long>, UserBalanceRepository {
+
+    Flux<User> findAllByIdGreaterThanOrderById(Long id, Pageable pageable);
+
+    /**
+     * Credits {@code amount} in a single statement. Emits nothing when the user does not exist.
+     */
+    @Query("""
+        UPDATE users
+        SET balance = balance + :amount,
+            updated_at = CURRENT_TIMESTAMP,
+            version = version + 1
+        WHERE id = :id
+        RETURNING *
+        """)
+    Mono<User> addBalance(Long id, BigDecimal amount);
+
+    /**
+     * Debits {@code amount} and applies the order's loyalty change in a single statement. A loyalty reset requires
+     * at least 10 loyalty points, checked against the row being updated so that concurrent orders cannot redeem the
+     * same points twice. Emits nothing when the user does not exist, the balance does not cover the amount or
+     * the loyalty points do not cover the reset.
+     */
+    @Query(CheckoutStatements.DEBIT_BALANCE_AND_UPDATE_LOYALTY)
+    Mono<User> debitBalanceAndUpdateLoyalty(Long id, BigDecimal amount, boolean resetLoyalty, int loyaltyPoints);
 }
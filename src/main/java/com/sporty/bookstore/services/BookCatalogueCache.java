@@ -0,0 +1,60 @@
+package com.sporty.bookstore.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sporty.bookstore.entities.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-through cache of the catalogue used on the pricing path. Books are loaded in bulk on a miss, through the
+ * {@link CheckoutStore} like the rest of a checkout, and evicted when they are updated or deleted through the API.
+ */
+@Component
+public class BookCatalogueCache {
+
+    private final CheckoutStore checkoutStore;
+    private final AsyncCache<Long, Book> cache;
+
+    public BookCatalogueCache(CheckoutStore checkoutStore, MeterRegistry meterRegistry,
+                              @Value("${bookstore.catalogue-cache.maximum-size:10000}") long maximumSize) {
+        this.checkoutStore = checkoutStore;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "book-catalogue");
+    }
+
+    /**
+     * Returns the cached books for the given ids, loading all missing ones with a single query.
+     * Ids without a book are absent from the result.
+     */
+    public Mono<Map<Long, Book>> findAllById(Collection<Long> ids) {
+        // An invalidation during a pending load discards the loaded value instead of caching a stale book
+        return Mono.fromFuture(() -> cache.getAll(ids, (missingIds, executor) ->
+            checkoutStore.findBooks(Set.copyOf(missingIds))
+                .collectMap(Book::getId)
+                .toFuture()));
+    }
+
+    public void invalidate(Long id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+}
@@ -0,0 +1,129 @@
+package com.sporty.bookstore.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sporty.bookstore.config.R2dbcPoolConfig;
+import com.sporty.bookstore.dtos.BookChange;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Feed of book price, type and deletion changes, fed by the {@code books} trigger through {@code LISTEN/NOTIFY}.
+ * One connection outside the pool listens for the whole application and every change is fanned out to all
+ * subscribers. Since the database notifies every listening instance, each change also evicts the book from this
+ * instance's caches, whichever instance made it.
+ */
+@Slf4j
+@Service
+public class BookChangeFeed {
+
+    static final String CHANNEL = "book_changes";
+
+    private static final Duration MIN_RECONNECT_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_RECONNECT_BACKOFF = Duration.ofSeconds(30);
+
+    private final ConnectionFactory connectionFactory;
+    private final BookCatalogueCache bookCatalogueCache;
+    private final QuoteCache quoteCache;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Sinks.Many<BookChange> sink = Sinks.many().multicast().directBestEffort();
+    private Disposable listener;
+
+    public BookChangeFeed(@Qualifier(R2dbcPoolConfig.PRIMARY_POOL) ConnectionPool connectionPool,
+                          BookCatalogueCache bookCatalogueCache, QuoteCache quoteCache, ObjectMapper objectMapper,
+                          @Value("${bookstore.book-changes.enabled:true}") boolean enabled) {
+        // A listening connection is held for good, so it must not take a slot of the pool
+        this.connectionFactory = connectionPool.unwrap();
+        this.bookCatalogueCache = bookCatalogueCache;
+        this.quoteCache = quoteCache;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        listener = listen()
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_RECONNECT_BACKOFF)
+                .maxBackoff(MAX_RECONNECT_BACKOFF)
+                .doBeforeRetry(signal -> log.warn("Book change listener failed, reconnecting", signal.failure())))
+            .subscribe(this::publish);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (listener != null) {
+            listener.dispose();
+        }
+    }
+
+    /**
+     * Changes committed from now on. A subscriber that cannot keep up misses changes instead of slowing down others,
+     * and the feed keeps running for everybody else.
+     */
+    public Flux<BookChange> changes() {
+        return sink.asFlux();
+    }
+
+    private Flux<BookChange> listen() {
+        return Flux.usingWhen(connectionFactory.create(),
+                connection -> {
+                    if (!(connection instanceof PostgresqlConnection postgresqlConnection)) {
+                        return Flux.error(new IllegalStateException(
+                            "LISTEN requires a PostgreSQL connection but got " + connection.getClass().getName()));
+                    }
+                    return postgresqlConnection.createStatement("LISTEN " + CHANNEL)
+                        .execute()
+                        .flatMap(PostgresqlResult::getRowsUpdated)
+                        // Changes made while no listener was connected were missed, so nothing cached can be trusted
+                        .thenMany(Flux.defer(() -> {
+                            bookCatalogueCache.invalidateAll();
+                            quoteCache.invalidateAll();
+                            return postgresqlConnection.getNotifications();
+                        }));
+                },
+                Connection::close)
+            .mapNotNull(this::toBookChange);
+    }
+
+    private BookChange toBookChange(Notification notification) {
+        try {
+            return objectMapper.readValue(notification.getParameter(), BookChange.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed book change notification {}", notification.getParameter(), e);
+            return null;
+        }
+    }
+
+    private void publish(BookChange change) {
+        // Caches are evicted before subscribers see the change, so a subscriber reloading the book gets the new one
+        bookCatalogueCache.invalidate(change.id());
+        quoteCache.invalidateBook(change.id());
+        var result = sink.tryEmitNext(change);
+        // No subscriber or no subscriber with demand only drops the change; emitNext would terminate the feed instead
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER
+            && result != Sinks.EmitResult.FAIL_OVERFLOW) {
+            log.warn("Book change {} could not be published: {}", change, result);
+        }
+    }
+}
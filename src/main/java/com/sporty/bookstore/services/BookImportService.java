@@ -0,0 +1,175 @@
+package com.sporty.bookstore.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sporty.bookstore.dtos.BookData;
+import com.sporty.bookstore.dtos.BookImportError;
+import com.sporty.bookstore.dtos.BookImportSummary;
+import com.sporty.bookstore.exceptions.FieldError;
+import com.sporty.bookstore.repositories.BookRepository;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Imports books from CSV or NDJSON lines. Every row is validated like a single created book, valid rows are
+ * written with one {@code COPY} per chunk, and a running summary is emitted after each chunk.
+ * Rejected rows never fail the import.
+ */
+@Service
+public class BookImportService {
+
+    private static final String CSV_HEADER = "title,price,type";
+    private static final int CSV_COLUMNS = 3;
+
+    private final BookRepository bookRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public BookImportService(BookRepository bookRepository, ObjectMapper objectMapper, Validator validator,
+                             @Value("${bookstore.book-import.chunk-size:5000}") int chunkSize) {
+        this.bookRepository = bookRepository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports {@code title,price,type} rows. A header row with these column names is optional.
+     */
+    public Flux<BookImportSummary> importCsv(Flux<String> lines) {
+        return importRows(numbered(lines)
+            .filter(line -> !(line.number() == 1 && CSV_HEADER.equalsIgnoreCase(line.text().strip()))),
+            BookImportService::parseCsv);
+    }
+
+    /**
+     * Imports one {@link BookData} JSON object per line.
+     */
+    public Flux<BookImportSummary> importNdjson(Flux<String> lines) {
+        return importRows(numbered(lines), this::parseJson);
+    }
+
+    private Flux<BookImportSummary> importRows(Flux<Line> lines, Function<String, BookData> parser) {
+        return lines.filter(line -> !line.text().isBlank())
+            .map(line -> toRow(line, parser))
+            .buffer(chunkSize)
+            .concatMap(this::importChunk)
+            .scan((total, chunk) -> new BookImportSummary(total.accepted() + chunk.accepted(),
+                total.rejected() + chunk.rejected(), chunk.errors()))
+            .defaultIfEmpty(new BookImportSummary(0, 0, List.of()));
+    }
+
+    private Mono<BookImportSummary> importChunk(List<Row> chunk) {
+        var books = chunk.stream()
+            .filter(row -> row.errors().isEmpty())
+            .map(Row::book)
+            .toList();
+        var errors = chunk.stream()
+            .filter(row -> !row.errors().isEmpty())
+            .map(row -> new BookImportError(row.line(), row.errors()))
+            .toList();
+        return bookRepository.copyAll(books)
+            .map(copied -> new BookImportSummary(copied, errors.size(), errors));
+    }
+
+    private Row toRow(Line line, Function<String, BookData> parser) {
+        BookData book;
+        try {
+            book = parser.apply(line.text());
+        } catch (MalformedRowException e) {
+            return new Row(line.number(), null, List.of(e.error));
+        }
+        var errors = validator.validate(book).stream()
+            .map(violation -> new FieldError(violation.getPropertyPath().toString(), violation.getMessage()))
+            .toList();
+        return new Row(line.number(), book, errors);
+    }
+
+    private BookData parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, BookData.class);
+        } catch (JsonProcessingException e) {
+            throw new MalformedRowException(new FieldError("row", "Row must be a valid book JSON object"));
+        }
+    }
+
+    private static BookData parseCsv(String line) {
+        var fields = splitCsv(line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+        if (fields.size() != CSV_COLUMNS) {
+            throw new MalformedRowException(new FieldError("row", "Row must have columns " + CSV_HEADER));
+        }
+        BigDecimal price = null;
+        if (fields.get(1) != null) {
+            try {
+                price = new BigDecimal(fields.get(1).strip());
+            } catch (NumberFormatException e) {
+                throw new MalformedRowException(new FieldError("price", "Book price must be a number"));
+            }
+        }
+        return new BookData(fields.get(0), price, fields.get(2) == null ? null : fields.get(2).strip());
+    }
+
+    // RFC 4180 fields: quoted fields may contain commas and doubled quotes, empty fields are read as null
+    private static List<String> splitCsv(String line) {
+        var fields = new ArrayList<String>();
+        var field = new StringBuilder();
+        var quoted = false;
+        var wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            var c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.isEmpty() && !wasQuoted ? null : field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new MalformedRowException(new FieldError("row", "Row has an unterminated quoted field"));
+        }
+        fields.add(field.isEmpty() && !wasQuoted ? null : field.toString());
+        return fields;
+    }
+
+    private static Flux<Line> numbered(Flux<String> lines) {
+        return lines.index((index, text) -> new Line(index + 1, text));
+    }
+
+    private record Line(long number, String text) {
+    }
+
+    private record Row(long line, BookData book, List<FieldError> errors) {
+    }
+
+    private static class MalformedRowException extends RuntimeException {
+
+        private final transient FieldError error;
+
+        MalformedRowException(FieldError error) {
+            super(error.message(), null, false, false);
+            this.error = error;
+        }
+    }
+}
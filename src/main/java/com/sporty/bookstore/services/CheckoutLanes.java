@@ -0,0 +1,132 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.exceptions.types.CheckoutQueueFullException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs at most one checkout per user at a time. Further checkouts of the same user wait in a bounded in-memory
+ * lane without holding a thread or a connection, so they no longer contend for the user's row in the database.
+ * A checkout that finds the lane full fails immediately with {@link CheckoutQueueFullException}.
+ */
+@Component
+public class CheckoutLanes {
+
+    public static final String QUEUE_WAIT_TIMER = "bookstore.checkout.queue.wait";
+    public static final String REJECTED_COUNTER = "bookstore.checkout.rejected";
+
+    // Lanes are only created, changed and removed inside compute(), which is atomic per user id
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Timer queueWaitTimer;
+    private final int maxDepth;
+
+    public CheckoutLanes(MeterRegistry meterRegistry, @Value("${bookstore.checkout-lanes.max-depth:16}") int maxDepth) {
+        this.meterRegistry = meterRegistry;
+        this.queueWaitTimer = Timer.builder(QUEUE_WAIT_TIMER)
+            .description("Time a checkout waits for the previous checkouts of the same user")
+            .register(meterRegistry);
+        this.maxDepth = maxDepth;
+        meterRegistry.gauge("bookstore.checkout.lanes", lanes, Map::size);
+    }
+
+    /**
+     * Subscribes to {@code checkout} once all earlier checkouts of the user have completed. {@code maxDepth} counts
+     * the running checkout together with the waiting ones.
+     */
+    public <T> Mono<T> submit(Long userId, Mono<T> checkout) {
+        return Mono.create(sink -> {
+            var task = new Task<>(userId, checkout, sink, Timer.start(meterRegistry));
+            var accepted = new boolean[1];
+            var runNow = new boolean[1];
+            lanes.compute(userId, (id, lane) -> {
+                var current = lane == null ? new Lane() : lane;
+                if (current.waiting.size() + 1 < maxDepth || !current.running) {
+                    accepted[0] = true;
+                    if (current.running) {
+                        current.waiting.add(task);
+                    } else {
+                        current.running = true;
+                        runNow[0] = true;
+                    }
+                }
+                return current;
+            });
+
+            if (!accepted[0]) {
+                meterRegistry.counter(REJECTED_COUNTER).increment();
+                sink.error(new CheckoutQueueFullException(userId));
+            } else if (runNow[0]) {
+                run(task);
+            }
+        });
+    }
+
+    private void run(Task<?> task) {
+        var next = task;
+        // Checkouts cancelled while waiting are skipped without being subscribed
+        while (next != null && next.cancelled) {
+            next = poll(next.userId);
+        }
+        if (next != null) {
+            next.start();
+        }
+    }
+
+    private Task<?> poll(Long userId) {
+        var next = new Task<?>[1];
+        lanes.compute(userId, (id, lane) -> {
+            next[0] = lane.waiting.poll();
+            if (next[0] == null) {
+                return null;
+            }
+            return lane;
+        });
+        return next[0];
+    }
+
+    private static final class Lane {
+        private final Queue<Task<?>> waiting = new ArrayDeque<>();
+        private boolean running;
+    }
+
+    private final class Task<T> {
+        private final Long userId;
+        private final Mono<T> checkout;
+        private final MonoSink<T> sink;
+        private final Timer.Sample queueWait;
+        private volatile boolean cancelled;
+        private volatile Disposable subscription;
+
+        private Task(Long userId, Mono<T> checkout, MonoSink<T> sink, Timer.Sample queueWait) {
+            this.userId = userId;
+            this.checkout = checkout;
+            this.sink = sink;
+            this.queueWait = queueWait;
+            sink.onCancel(() -> {
+                cancelled = true;
+                var running = subscription;
+                if (running != null) {
+                    running.dispose();
+                }
+            });
+        }
+
+        private void start() {
+            queueWait.stop(queueWaitTimer);
+            subscription = checkout
+                .doFinally(signal -> run(poll(userId)))
+                .subscribe(sink::success, sink::error, sink::success);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.dtos.OrderPriceInfo;
+import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.entities.Order;
+import com.sporty.bookstore.entities.User;
+import com.sporty.bookstore.exceptions.types.BadRequestException;
+import com.sporty.bookstore.exceptions.types.InsufficientBalanceException;
+import com.sporty.bookstore.exceptions.types.LoyaltyNotAcceptableException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Database access of a checkout. {@link R2dbcCheckoutStore} is used by default, the {@code jdbc} profile replaces it
+ * with {@link JdbcCheckoutStore}, which runs the same statements over JDBC on virtual threads.
+ */
+public interface CheckoutStore {
+
+    /**
+     * Loads the books of an order. Ids without a book are skipped.
+     */
+    Flux<Book> findBooks(Collection<Long> ids);
+
+    /**
+     * Emits nothing when the user does not exist.
+     */
+    Mono<User> findUser(Long userId);
+
+    /**
+     * Debits the order's total, applies its loyalty change and stores the order with its items, the user's order
+     * stats and the order-created event in one transaction. Fails with {@link InsufficientBalanceException} when
+     * the balance does not cover the order and with {@link LoyaltyNotAcceptableException} when the loyalty points
+     * no longer cover a loyalty reset.
+     */
+    Mono<Order> placeOrder(OrderPriceInfo orderPriceInfo, boolean resetLoyalty, int loyaltyPoints);
+
+    /**
+     * Why the conditional debit updated no row, given the user as re-read after it.
+     */
+    static BadRequestException debitRejected(User user, boolean resetLoyalty) {
+        if (resetLoyalty && user.getLoyalty() < 10) {
+            return new LoyaltyNotAcceptableException(user.getLoyalty());
+        }
+        return new InsufficientBalanceException();
+    }
+}
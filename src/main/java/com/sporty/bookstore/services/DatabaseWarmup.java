@@ -0,0 +1,148 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.config.R2dbcPoolConfig;
+import com.sporty.bookstore.config.R2dbcPoolProperties;
+import com.sporty.bookstore.entities.Order;
+import com.sporty.bookstore.entities.OrderEvent;
+import com.sporty.bookstore.entities.OrderItem;
+import com.sporty.bookstore.entities.User;
+import com.sporty.bookstore.repositories.BookRepository;
+import com.sporty.bookstore.repositories.OrderEventRepository;
+import com.sporty.bookstore.repositories.OrderItemRepository;
+import com.sporty.bookstore.repositories.OrderRepository;
+import com.sporty.bookstore.repositories.UserOrderStatsRepository;
+import com.sporty.bookstore.repositories.UserRepository;
+import io.r2dbc.pool.ConnectionPool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.sporty.bookstore.config.ReadReplicaRoutingConnectionFactory.readOnly;
+
+/**
+ * Opens the initial connections of the primary pool and of the read replica's pool, when one is configured, and
+ * prepares the hot queries on each of them before the application reports itself ready. Primary connections also
+ * prepare the writes of a checkout; the replica only serves reads. Spring Boot only flips readiness to
+ * {@code ACCEPTING_TRAFFIC} after all runners have finished, so the warm-up blocks startup until it completes or
+ * times out.
+ */
+@Slf4j
+@Component
+public class DatabaseWarmup implements ApplicationRunner {
+
+    // Ids are never generated as 0, so the primed reads find nothing
+    private static final long MISSING_ID = 0;
+
+    private final ConnectionPool primaryConnectionPool;
+    private final ConnectionPool replicaConnectionPool;
+    private final R2dbcPoolProperties poolProperties;
+    private final TransactionalOperator transactionalOperator;
+    private final BookRepository bookRepository;
+    private final UserRepository userRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final UserOrderStatsRepository userOrderStatsRepository;
+    private final OrderEventRepository orderEventRepository;
+
+    public DatabaseWarmup(@Qualifier(R2dbcPoolConfig.PRIMARY_POOL) ConnectionPool primaryConnectionPool,
+                          @Qualifier(R2dbcPoolConfig.REPLICA_POOL) ObjectProvider<ConnectionPool> replicaConnectionPool,
+                          R2dbcPoolProperties poolProperties, TransactionalOperator transactionalOperator,
+                          BookRepository bookRepository, UserRepository userRepository, OrderRepository orderRepository,
+                          OrderItemRepository orderItemRepository, UserOrderStatsRepository userOrderStatsRepository,
+                          OrderEventRepository orderEventRepository) {
+        this.primaryConnectionPool = primaryConnectionPool;
+        this.replicaConnectionPool = replicaConnectionPool.getIfAvailable();
+        this.poolProperties = poolProperties;
+        this.transactionalOperator = transactionalOperator;
+        this.bookRepository = bookRepository;
+        this.userRepository = userRepository;
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.userOrderStatsRepository = userOrderStatsRepository;
+        this.orderEventRepository = orderEventRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        var warmup = poolProperties.warmup();
+        if (!warmup.enabled()) {
+            return;
+        }
+        warmUp()
+            .timeout(warmup.timeout())
+            .doOnSuccess(connections -> log.info("Warmed up {} database connections", connections))
+            .onErrorResume(error -> {
+                log.warn("Database warm-up did not complete, serving traffic with a cold pool", error);
+                return Mono.empty();
+            })
+            .block();
+    }
+
+    /**
+     * Emits the number of connections the hot queries were prepared on.
+     */
+    Mono<Long> warmUp() {
+        var primary = warmUp(primaryConnectionPool, () -> primeHotQueries().then(primeCheckout()));
+        if (replicaConnectionPool == null) {
+            return primary;
+        }
+        // Marked like the reads themselves, so that the transactions take their connections from the replica
+        var replica = readOnly(warmUp(replicaConnectionPool, this::primeHotQueries));
+        return primary.zipWith(replica, Long::sum);
+    }
+
+    private Mono<Long> warmUp(ConnectionPool connectionPool, Supplier<Mono<Void>> queries) {
+        var connections = poolProperties.initialSize();
+        // Concurrent transactions hold distinct connections, so every warmed-up connection prepares the queries
+        return connectionPool.warmup()
+            .thenMany(Flux.range(0, connections)
+                .flatMap(connection -> transactionalOperator.execute(status -> {
+                        status.setRollbackOnly();
+                        return queries.get();
+                    })
+                    .then(Mono.just(connection)), connections))
+            .count();
+    }
+
+    // The driver caches a prepared statement per connection and query text, so the queries must be
+    // issued through the same repository methods as the request path
+    private Mono<Void> primeHotQueries() {
+        return Flux.concat(
+            bookRepository.findById(MISSING_ID),
+            bookRepository.findAllByIds(new Long[]{MISSING_ID}),
+            bookRepository.findPage(null, null, null, MISSING_ID, 1),
+            userRepository.findById(MISSING_ID),
+            userRepository.findAllByIdGreaterThanOrderById(MISSING_ID, PageRequest.ofSize(1)),
+            userRepository.existsById(MISSING_ID),
+            userOrderStatsRepository.findByUserId(MISSING_ID),
+            orderRepository.findPageWithItems(null, null, null, MISSING_ID, 1)
+        ).then();
+    }
+
+    // The writes of a checkout need rows to refer to, so they go to a user created in the rolled-back transaction
+    private Mono<Void> primeCheckout() {
+        var user = new User();
+        user.setName("warm-up");
+        user.setBalance(BigDecimal.ZERO);
+        user.setLoyalty(0);
+        return userRepository.save(user)
+            .flatMap(saved -> userRepository.debitBalanceAndUpdateLoyalty(saved.getId(), BigDecimal.ZERO, false, 0))
+            .flatMap(debited -> orderRepository.save(new Order(debited.getId(), BigDecimal.ZERO)))
+            .flatMap(order -> orderItemRepository.insertAll(List.of(new OrderItem(order.getId(), null, BigDecimal.ZERO, 1)))
+                .then(userOrderStatsRepository.recordOrder(order.getUserId(), BigDecimal.ZERO, order.getCreatedAt()))
+                .then(orderEventRepository.append(order.getId(), OrderEvent.ORDER_CREATED, "{}")))
+            .then();
+    }
+
+}
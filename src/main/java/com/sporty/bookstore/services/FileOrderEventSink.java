@@ -0,0 +1,43 @@
+package com.sporty.bookstore.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sporty.bookstore.entities.OrderEvent;
+import lombok.AllArgsConstructor;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+/**
+ * Appends every event as one JSON line to a file, for trying out consumers locally.
+ */
+@AllArgsConstructor
+public class FileOrderEventSink implements OrderEventSink {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Mono<Void> publish(List<OrderEvent> events) {
+        return Mono.<Void>fromCallable(() -> {
+                var lines = new ArrayList<String>(events.size());
+                for (var event : events) {
+                    lines.add(objectMapper.writeValueAsString(event));
+                }
+                append(lines);
+                return null;
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private synchronized void append(List<String> lines) throws IOException {
+        Files.write(file, lines, CREATE, APPEND);
+    }
+}
@@ -0,0 +1,73 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.repositories.IdempotencyKeyRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Deletes idempotency keys claimed longer than {@code bookstore.idempotency.retention} ago, every
+ * {@code bookstore.idempotency.cleanup-interval}. A request retried with a deleted key places a new order, so the
+ * retention should cover the longest time clients retry for.
+ */
+@Slf4j
+@Component
+public class IdempotencyKeyCleanup {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final Duration retention;
+    private final Duration cleanupInterval;
+    private final Clock clock;
+    private Disposable cleanup;
+
+    public IdempotencyKeyCleanup(IdempotencyKeyRepository idempotencyKeyRepository,
+                                 @Value("${bookstore.idempotency.retention:P1D}") Duration retention,
+                                 @Value("${bookstore.idempotency.cleanup-interval:PT1H}") Duration cleanupInterval) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.retention = retention;
+        this.cleanupInterval = cleanupInterval;
+        this.clock = Clock.systemUTC();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        cleanup = Flux.interval(cleanupInterval)
+            .onBackpressureDrop()
+            .concatMap(tick -> deleteExpired()
+                .onErrorResume(error -> {
+                    log.warn("Idempotency key cleanup failed, retrying on the next run", error);
+                    return Mono.empty();
+                }), 1)
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (cleanup != null) {
+            cleanup.dispose();
+        }
+    }
+
+    /**
+     * Deletes the expired keys in batches, so no statement holds locks on many rows, and emits the number deleted.
+     */
+    public Mono<Long> deleteExpired() {
+        var before = clock.instant().minus(retention);
+        return idempotencyKeyRepository.deleteCreatedBefore(before, BATCH_SIZE)
+            .expand(deleted -> deleted == BATCH_SIZE
+                ? idempotencyKeyRepository.deleteCreatedBefore(before, BATCH_SIZE)
+                : Mono.empty())
+            .reduce(0L, Long::sum);
+    }
+}
@@ -0,0 +1,127 @@
+package com.sporty.bookstore.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sporty.bookstore.dtos.BookItem;
+import com.sporty.bookstore.dtos.OrderDetails;
+import com.sporty.bookstore.entities.Order;
+import com.sporty.bookstore.exceptions.types.IdempotencyKeyReusedException;
+import com.sporty.bookstore.exceptions.types.InvalidIdempotencyKeyException;
+import com.sporty.bookstore.repositories.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Creates each order at most once per {@code Idempotency-Key}. The key is claimed in the same transaction that
+ * creates the order and stores the response, so a replay returns the stored order without pricing or writes.
+ * A key reused by another user or for a different order is rejected instead of replayed.
+ * Completed keys are kept in a hot cache, which also merges concurrent requests with the same key into one
+ * execution. Failed orders do not consume their key.
+ */
+@Service
+public class IdempotentOrderService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final OrderService orderService;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final CheckoutLanes checkoutLanes;
+    private final TransactionalOperator transactionalOperator;
+    private final ObjectMapper objectMapper;
+    private final AsyncCache<String, KeyedOrder> cache;
+
+    public IdempotentOrderService(OrderService orderService, IdempotencyKeyRepository idempotencyKeyRepository,
+                                  CheckoutLanes checkoutLanes,
+                                  TransactionalOperator transactionalOperator, ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${bookstore.idempotency.cache-ttl:PT1H}") Duration cacheTtl,
+                                  @Value("${bookstore.idempotency.cache-maximum-size:10000}") long cacheMaximumSize) {
+        this.orderService = orderService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.checkoutLanes = checkoutLanes;
+        this.transactionalOperator = transactionalOperator;
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+            .expireAfterWrite(cacheTtl)
+            .maximumSize(cacheMaximumSize)
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "idempotency-keys");
+    }
+
+    public Mono<Order> createOrder(String idempotencyKey, Mono<OrderDetails> orderDetails) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return Mono.error(new InvalidIdempotencyKeyException(MAX_KEY_LENGTH));
+        }
+
+        // Cancellation is suppressed so that a disconnecting client does not abort a checkout other requests wait for
+        return orderDetails.flatMap(details -> {
+            var requestHash = requestHash(details);
+            return Mono.fromFuture(() -> cache.get(idempotencyKey,
+                    (key, executor) -> createOnce(key, details, requestHash).toFuture()), true)
+                .flatMap(keyedOrder -> {
+                    if (!keyedOrder.order().getUserId().equals(details.userId())) {
+                        return Mono.error(new IdempotencyKeyReusedException(idempotencyKey));
+                    }
+                    // Keys claimed before request hashes were stored have none and are matched on the user only
+                    if (keyedOrder.requestHash() != null && !keyedOrder.requestHash().equals(requestHash)) {
+                        return Mono.error(new IdempotencyKeyReusedException(idempotencyKey, "a different order"));
+                    }
+                    return Mono.just(keyedOrder.order());
+                });
+        });
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    private Mono<KeyedOrder> createOnce(String key, OrderDetails details, String requestHash) {
+        var checkout = idempotencyKeyRepository.reserve(key, details.userId(), requestHash)
+            .flatMap(reserved -> orderService.createOrder(Mono.just(details)))
+            .flatMap(order -> Mono.fromCallable(() -> objectMapper.writeValueAsString(order))
+                .flatMap(response -> idempotencyKeyRepository.complete(key, order.getId(), response))
+                .thenReturn(new KeyedOrder(order, requestHash)))
+            .switchIfEmpty(Mono.defer(() -> idempotencyKeyRepository.findByKey(key))
+                .flatMap(stored -> Mono.fromCallable(() -> new KeyedOrder(
+                    objectMapper.readValue(stored.getResponse(), Order.class), stored.getRequestHash()))));
+
+        // The whole transaction, including the key claim, runs in the user's checkout lane
+        return checkoutLanes.submit(details.userId(), transactionalOperator.transactional(checkout));
+    }
+
+    /**
+     * Hashes the order as it would be priced: items of the same book are merged and items are ordered by book,
+     * so a retry with the items listed differently still matches.
+     */
+    private static String requestHash(OrderDetails details) {
+        var items = details.items().stream()
+            .collect(Collectors.toMap(BookItem::bookId, BookItem::quantity, Integer::sum, TreeMap::new));
+        var normalized = "%s|%s|%s".formatted(details.userId(), details.loyaltyBookId(), items);
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record KeyedOrder(Order order, String requestHash) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.entities.OrderEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+
+/**
+ * Publishes events to subscribers in the same JVM. Events published while nobody is subscribed, or that a slow
+ * subscriber is not ready for, are dropped for that subscriber; the sink itself keeps accepting events.
+ */
+public class InMemoryOrderEventSink implements OrderEventSink {
+
+    private final Sinks.Many<OrderEvent> sink = Sinks.many().multicast().directBestEffort();
+
+    @Override
+    public Mono<Void> publish(List<OrderEvent> events) {
+        return Mono.fromRunnable(() -> {
+            // relayAll() may run concurrently with the background relay, and the sink requires serialized emissions
+            synchronized (sink) {
+                events.forEach(this::emit);
+            }
+        });
+    }
+
+    public Flux<OrderEvent> events() {
+        return sink.asFlux();
+    }
+
+    private void emit(OrderEvent event) {
+        var result = sink.tryEmitNext(event);
+        // No subscriber or no subscriber with demand only drops the event; emitNext would terminate the sink instead
+        if (result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER && result != Sinks.EmitResult.FAIL_OVERFLOW) {
+            result.orThrow();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.sporty.bookstore.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sporty.bookstore.config.JdbcConfig;
+import com.sporty.bookstore.dtos.OrderPriceInfo;
+import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.entities.Order;
+import com.sporty.bookstore.entities.OrderEvent;
+import com.sporty.bookstore.entities.OrderItem;
+import com.sporty.bookstore.entities.User;
+import com.sporty.bookstore.exceptions.types.UserNotFoundException;
+import com.sporty.bookstore.metrics.OrderMetrics;
+import com.sporty.bookstore.repositories.JdbcCheckoutRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.UncheckedIOException;
+import java.util.Collection;
+
+/**
+ * Runs checkouts over JDBC. Each call blocks a virtual thread of the JDBC scheduler on a HikariCP connection, so
+ * a checkout holds no R2DBC connection. Orders placed inside a reactive transaction, like idempotent checkouts
+ * claiming their key, are handed to {@link R2dbcCheckoutStore} so that they commit with that transaction; keyed
+ * checkouts are therefore not part of the JDBC mode.
+ */
+@Service
+@Primary
+@Profile("jdbc")
+public class JdbcCheckoutStore implements CheckoutStore {
+
+    private final JdbcCheckoutRepository jdbcCheckoutRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Scheduler scheduler;
+    private final R2dbcCheckoutStore r2dbcCheckoutStore;
+    private final OrderMetrics orderMetrics;
+    private final ObjectMapper objectMapper;
+
+    public JdbcCheckoutStore(JdbcCheckoutRepository jdbcCheckoutRepository,
+                             @Qualifier(JdbcConfig.TRANSACTION_TEMPLATE) TransactionTemplate transactionTemplate,
+                             @Qualifier(JdbcConfig.SCHEDULER) Scheduler scheduler,
+                             R2dbcCheckoutStore r2dbcCheckoutStore, OrderMetrics orderMetrics, ObjectMapper objectMapper) {
+        this.jdbcCheckoutRepository = jdbcCheckoutRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.scheduler = scheduler;
+        this.r2dbcCheckoutStore = r2dbcCheckoutStore;
+        this.orderMetrics = orderMetrics;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Flux<Book> findBooks(Collection<Long> ids) {
+        return Mono.fromCallable(() -> jdbcCheckoutRepository.findBooksByIds(ids))
+            .subscribeOn(scheduler)
+            .flatMapIterable(books -> books);
+    }
+
+    @Override
+    public Mono<User> findUser(Long userId) {
+        return Mono.fromCallable(() -> jdbcCheckoutRepository.findUserById(userId).orElse(null))
+            .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Order> placeOrder(OrderPriceInfo orderPriceInfo, boolean resetLoyalty, int loyaltyPoints) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+            .map(TransactionSynchronizationManager::isActualTransactionActive)
+            .onErrorResume(NoTransactionException.class, error -> Mono.just(false))
+            .flatMap(inReactiveTransaction -> inReactiveTransaction
+                ? r2dbcCheckoutStore.placeOrder(orderPriceInfo, resetLoyalty, loyaltyPoints)
+                : Mono.fromCallable(() -> transactionTemplate.execute(status ->
+                        placeOrderInTransaction(orderPriceInfo, resetLoyalty, loyaltyPoints)))
+                    .subscribeOn(scheduler));
+    }
+
+    private Order placeOrderInTransaction(OrderPriceInfo orderPriceInfo, boolean resetLoyalty, int loyaltyPoints) {
+        var userId = orderPriceInfo.userId();
+        orderMetrics.timed("process-user-balance-and-loyalty", () -> jdbcCheckoutRepository
+            .debitBalanceAndUpdateLoyalty(userId, orderPriceInfo.totalPrice(), resetLoyalty, loyaltyPoints)
+            .orElseThrow(() -> jdbcCheckoutRepository.findUserById(userId)
+                .<RuntimeException>map(user -> CheckoutStore.debitRejected(user, resetLoyalty))
+                .orElseGet(() -> new UserNotFoundException(userId))));
+
+        return orderMetrics.timed("save-order-with-items", () -> {
+            var order = jdbcCheckoutRepository.insertOrder(orderPriceInfo.userId(), orderPriceInfo.totalPrice());
+            var orderItems = orderPriceInfo.items().stream()
+                .map(item -> new OrderItem(order.getId(), item.bookId(), item.price(), item.quantity()))
+                .toList();
+            order.setOrderItems(jdbcCheckoutRepository.insertOrderItems(orderItems));
+
+            jdbcCheckoutRepository.recordOrder(order.getUserId(), order.getTotalPrice(), order.getCreatedAt());
+            jdbcCheckoutRepository.appendOrderEvent(order.getId(), OrderEvent.ORDER_CREATED, toPayload(order));
+            return order;
+        });
+    }
+
+    private String toPayload(Order order) {
+        try {
+            return objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
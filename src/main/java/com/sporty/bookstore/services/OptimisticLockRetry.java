@@ -0,0 +1,38 @@
+package com.sporty.bookstore.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.time.Duration;
+
+/**
+ * Retries read-modify-write operations that lost an optimistic locking race. Backoff is exponential with jitter,
+ * so concurrent writers of the same entity spread out instead of colliding again. Once the attempts are exhausted
+ * the original {@link OptimisticLockingFailureException} is propagated.
+ */
+@Component
+public class OptimisticLockRetry {
+
+    private final RetryBackoffSpec retry;
+
+    public OptimisticLockRetry(@Value("${bookstore.optimistic-lock-retry.max-attempts:10}") int maxAttempts,
+                               @Value("${bookstore.optimistic-lock-retry.min-backoff:PT0.01S}") Duration minBackoff,
+                               @Value("${bookstore.optimistic-lock-retry.max-backoff:PT0.5S}") Duration maxBackoff) {
+        this.retry = Retry.backoff(maxAttempts, minBackoff)
+            .maxBackoff(maxBackoff)
+            .jitter(0.5)
+            .filter(OptimisticLockingFailureException.class::isInstance)
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    /**
+     * Resubscribes to {@code write} on a version conflict, so it must read the entity again on every subscription.
+     */
+    public <T> Mono<T> withRetry(Mono<T> write) {
+        return write.retryWhen(retry);
+    }
+}
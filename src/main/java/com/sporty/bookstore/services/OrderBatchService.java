@@ -0,0 +1,107 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.dtos.BookItem;
+import com.sporty.bookstore.dtos.OrderBatchResult;
+import com.sporty.bookstore.dtos.OrderDetails;
+import com.sporty.bookstore.exceptions.ErrorResponse;
+import com.sporty.bookstore.exceptions.FieldError;
+import com.sporty.bookstore.exceptions.types.BadRequestException;
+import com.sporty.bookstore.exceptions.types.NotFoundException;
+import com.sporty.bookstore.exceptions.types.TooManyRequestsException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Places a stream of orders. Every order is validated and created in its own transaction, so one failing order
+ * only produces a failed result and never rolls back the others. Books of a whole chunk are loaded into the
+ * catalogue cache with one query before the chunk is priced.
+ */
+@Slf4j
+@Service
+public class OrderBatchService {
+
+    private static final Duration CHUNK_TIMEOUT = Duration.ofMillis(100);
+
+    private final OrderService orderService;
+    private final BookCatalogueCache bookCatalogueCache;
+    private final CheckoutLanes checkoutLanes;
+    private final Validator validator;
+    private final int concurrency;
+    private final int chunkSize;
+
+    public OrderBatchService(OrderService orderService, BookCatalogueCache bookCatalogueCache, CheckoutLanes checkoutLanes,
+                             Validator validator,
+                             @Value("${bookstore.order-batch.concurrency:8}") int concurrency,
+                             @Value("${bookstore.order-batch.chunk-size:100}") int chunkSize) {
+        this.orderService = orderService;
+        this.bookCatalogueCache = bookCatalogueCache;
+        this.checkoutLanes = checkoutLanes;
+        this.validator = validator;
+        this.concurrency = concurrency;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Creates the given orders with bounded concurrency and emits one result per order, in request order.
+     */
+    public Flux<OrderBatchResult> createOrders(Flux<OrderDetails> orderDetails) {
+        return orderDetails.index((index, details) -> new BatchEntry(index, details, validate(details)))
+            .bufferTimeout(chunkSize, CHUNK_TIMEOUT)
+            .concatMap(chunk -> preloadBooks(chunk).thenMany(Flux.fromIterable(chunk)))
+            .flatMapSequential(this::createOrder, concurrency);
+    }
+
+    private Mono<Void> preloadBooks(List<BatchEntry> chunk) {
+        var bookIds = chunk.stream()
+            .filter(entry -> entry.error() == null)
+            .flatMap(entry -> entry.details().items().stream())
+            .map(BookItem::bookId)
+            .collect(Collectors.toSet());
+        return bookIds.isEmpty()
+            ? Mono.empty()
+            : bookCatalogueCache.findAllById(bookIds).then();
+    }
+
+    private Mono<OrderBatchResult> createOrder(BatchEntry entry) {
+        if (entry.error() != null) {
+            return Mono.just(OrderBatchResult.failure(entry.index(), entry.error()));
+        }
+        return checkoutLanes.submit(entry.details().userId(), orderService.createOrder(Mono.just(entry.details())))
+            .map(order -> OrderBatchResult.success(entry.index(), order))
+            .onErrorResume(error -> Mono.just(OrderBatchResult.failure(entry.index(), toErrorResponse(entry.index(), error))));
+    }
+
+    private ErrorResponse validate(OrderDetails details) {
+        Set<ConstraintViolation<OrderDetails>> violations = validator.validate(details);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        var errors = violations.stream()
+            .map(violation -> new FieldError(violation.getPropertyPath().toString(), violation.getMessage()))
+            .toList();
+        return new ErrorResponse("Validation failed for one or more fields", errors);
+    }
+
+    private static ErrorResponse toErrorResponse(long index, Throwable error) {
+        if (error instanceof NotFoundException || error instanceof BadRequestException
+            || error instanceof TooManyRequestsException) {
+            return new ErrorResponse(error.getMessage());
+        }
+        // The client only sees a generic message, so the cause is kept in the server log
+        log.error("Order {} of the batch failed unexpectedly", index, error);
+        return new ErrorResponse("Order could not be processed");
+    }
+
+    private record BatchEntry(long index, OrderDetails details, ErrorResponse error) {
+    }
+}
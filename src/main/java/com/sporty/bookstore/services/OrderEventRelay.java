@@ -0,0 +1,126 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.config.OutboxProperties;
+import com.sporty.bookstore.entities.OrderEvent;
+import com.sporty.bookstore.repositories.OrderEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes outbox events to the configured {@link OrderEventSink}. Every poll drains the outbox in batches; each
+ * batch is locked with {@code FOR UPDATE SKIP LOCKED}, published and marked published in one transaction, so
+ * several instances share the work without publishing an event twice unless a transaction fails after publishing.
+ * Every poll also deletes the events published longer than {@code bookstore.outbox.retention} ago, so the outbox
+ * only holds recent events.
+ * <p>
+ * The age of the oldest unpublished event is exposed as {@code bookstore.outbox.lag}.
+ */
+@Slf4j
+@Component
+public class OrderEventRelay {
+
+    public static final String LAG_GAUGE = "bookstore.outbox.lag";
+    public static final String PUBLISHED_COUNTER = "bookstore.outbox.published";
+
+    private final OrderEventRepository orderEventRepository;
+    private final OrderEventSink orderEventSink;
+    private final TransactionalOperator transactionalOperator;
+    private final OutboxProperties outboxProperties;
+    private final Clock clock;
+    private final Counter publishedCounter;
+    private final AtomicLong lagMillis = new AtomicLong();
+    private Disposable relay;
+
+    public OrderEventRelay(OrderEventRepository orderEventRepository, OrderEventSink orderEventSink,
+                           TransactionalOperator transactionalOperator, OutboxProperties outboxProperties,
+                           MeterRegistry meterRegistry) {
+        this.orderEventRepository = orderEventRepository;
+        this.orderEventSink = orderEventSink;
+        this.transactionalOperator = transactionalOperator;
+        this.outboxProperties = outboxProperties;
+        this.clock = Clock.systemUTC();
+        this.publishedCounter = meterRegistry.counter(PUBLISHED_COUNTER);
+        Gauge.builder(LAG_GAUGE, lagMillis, lag -> lag.get() / 1000.0)
+            .description("Age of the oldest unpublished order event")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!outboxProperties.relayEnabled()) {
+            return;
+        }
+        relay = Flux.interval(Duration.ZERO, outboxProperties.pollInterval())
+            .onBackpressureDrop()
+            .concatMap(tick -> relayAll()
+                .then(deletePublished())
+                .then(updateLag())
+                .onErrorResume(error -> {
+                    log.warn("Order event relay run failed, retrying on the next poll", error);
+                    return Mono.empty();
+                }), 1)
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (relay != null) {
+            relay.dispose();
+        }
+    }
+
+    /**
+     * Publishes batches until the outbox has no unlocked unpublished events left and emits the number published.
+     */
+    public Mono<Long> relayAll() {
+        return relayBatch()
+            .expand(published -> published == outboxProperties.batchSize() ? relayBatch() : Mono.empty())
+            .reduce(0L, Long::sum);
+    }
+
+    /**
+     * Deletes the events published before the retention period in batches and emits the number deleted.
+     */
+    public Mono<Long> deletePublished() {
+        var before = clock.instant().minus(outboxProperties.retention());
+        return orderEventRepository.deletePublishedBefore(before, outboxProperties.batchSize())
+            .expand(deleted -> deleted == outboxProperties.batchSize()
+                ? orderEventRepository.deletePublishedBefore(before, outboxProperties.batchSize())
+                : Mono.empty())
+            .reduce(0L, Long::sum);
+    }
+
+    private Mono<Integer> relayBatch() {
+        return transactionalOperator.transactional(orderEventRepository.lockUnpublished(outboxProperties.batchSize())
+                .collectList()
+                .filter(events -> !events.isEmpty())
+                .flatMap(events -> orderEventSink.publish(events)
+                    .then(orderEventRepository.markPublished(events.stream().map(OrderEvent::getId).toArray(Long[]::new)))
+                    .thenReturn(events.size())))
+            .doOnNext(publishedCounter::increment)
+            .defaultIfEmpty(0);
+    }
+
+    private Mono<Void> updateLag() {
+        return orderEventRepository.findOldestUnpublishedCreatedAt()
+            .map(oldest -> Math.max(0, Duration.between(oldest, clock.instant()).toMillis()))
+            .defaultIfEmpty(0L)
+            .doOnNext(lagMillis::set)
+            .then();
+    }
+}
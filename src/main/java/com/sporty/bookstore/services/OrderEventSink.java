@@ -0,0 +1,15 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.entities.OrderEvent;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Destination of the outbox relay. Events are marked published only after {@link #publish(List)} completes,
+ * so a sink sees every event at least once and must tolerate redelivery after a failed relay run.
+ */
+public interface OrderEventSink {
+
+    Mono<Void> publish(List<OrderEvent> events);
+}
@@ -0,0 +1,27 @@
+package com.sporty.bookstore.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sporty.bookstore.entities.Order;
+import com.sporty.bookstore.entities.OrderEvent;
+import com.sporty.bookstore.repositories.OrderEventRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records order events in the {@code order_events} outbox. Must be called in the transaction that changes the order,
+ * so an event exists exactly when the change is committed; {@link OrderEventRelay} publishes it afterwards.
+ */
+@Component
+@AllArgsConstructor
+public class OrderOutbox {
+
+    private final OrderEventRepository orderEventRepository;
+    private final ObjectMapper objectMapper;
+
+    public Mono<Void> orderCreated(Order order) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(order))
+            .flatMap(payload -> orderEventRepository.append(order.getId(), OrderEvent.ORDER_CREATED, payload))
+            .then();
+    }
+}
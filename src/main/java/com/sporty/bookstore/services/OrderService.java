@@ -1,97 +1,84 @@
 package com.sporty.bookstore.services;
 
+import com.sporty.bookstore.config.ExportProperties;
 import com.sporty.bookstore.dtos.BookItem;
 import com.sporty.bookstore.dtos.BookPriceItem;
+import com.sporty.bookstore.dtos.CursorPage;
 import com.sporty.bookstore.dtos.OrderDetails;
+import com.sporty.bookstore.dtos.OrderFilter;
 import com.sporty.bookstore.dtos.OrderPriceInfo;
+import com.sporty.bookstore.dtos.PageParams;
 import com.sporty.bookstore.entities.Book;
 import com.sporty.bookstore.entities.Order;
-import com.sporty.bookstore.entities.OrderItem;
 import com.sporty.bookstore.exceptions.types.BookNotFoundException;
-import com.sporty.bookstore.exceptions.types.InsufficientBalanceException;
 import com.sporty.bookstore.exceptions.types.LoyaltyNotAcceptableException;
+import com.sporty.bookstore.exceptions.types.QuantityExceededException;
 import com.sporty.bookstore.exceptions.types.UserNotFoundException;
+import com.sporty.bookstore.metrics.OrderMetrics;
 import com.sporty.bookstore.models.BookType;
-import com.sporty.bookstore.repositories.BookRepository;
-import com.sporty.bookstore.repositories.OrderItemRepository;
 import com.sporty.bookstore.repositories.OrderRepository;
-import com.sporty.bookstore.repositories.UserRepository;
-import com.sporty.bookstore.utils.DiscountUtil;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.function.Tuple2;
 
-import java.math.BigDecimal;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+
+import static com.sporty.bookstore.config.ReadReplicaRoutingConnectionFactory.readOnly;
 
 @Service
 @AllArgsConstructor
 public class OrderService {
 
-    private final UserRepository userRepository;
-    private final BookRepository bookRepository;
+    private final CheckoutStore checkoutStore;
+    private final BookCatalogueCache bookCatalogueCache;
+    private final PricingEngine pricingEngine;
+    private final QuoteCache quoteCache;
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
+    private final OrderMetrics orderMetrics;
+    private final ExportProperties exportProperties;
 
-    @Transactional
     public Mono<Order> createOrder(Mono<OrderDetails> orderDetails) {
         Mono<OrderDetails> cachedOrderDetails = orderDetails.cache();
-        return this.getOrderPriceInfo(cachedOrderDetails)
+        return orderMetrics.countedCheckout(this.getOrderPriceInfo(cachedOrderDetails)
             .zipWith(cachedOrderDetails)
-            .flatMap(this::processUserBalanceAndLoyalty)
-            .flatMap(this::saveOrderWithItems);
+            .flatMap(this::placeOrder)
+            .flatMap(order -> quoteCache.invalidateUserAfterCompletion(order.getUserId()).thenReturn(order)));
+    }
+
+    /**
+     * Quotes the order like {@link #getOrderPriceInfo(Mono)}, sharing the result with identical concurrent
+     * and recent quotes.
+     */
+    public Mono<OrderPriceInfo> getQuote(Mono<OrderDetails> orderDetails) {
+        return orderDetails.flatMap(details -> quoteCache.get(details, quoted -> getOrderPriceInfo(Mono.just(quoted))));
     }
 
     public Mono<OrderPriceInfo> getOrderPriceInfo(Mono<OrderDetails> orderDetailsMono) {
         return orderDetailsMono
-            .flatMap(this::validateUserLoyaltyOrError)
+            .flatMap(details -> orderMetrics.timed("validate-user-loyalty", this.validateUserLoyaltyOrError(details)))
             .flatMap(orderDetails -> {
                 var bookQuantitityMap = orderDetails.items().stream()
                     .collect(Collectors.toMap(BookItem::bookId, BookItem::quantity, Integer::sum));
 
-                return bookRepository.findAllById(bookQuantitityMap.keySet())
-                    .collectMap(Book::getId)
+                // Each item is validated on its own, repeating a book must not add up beyond the same limit
+                var exceeded = bookQuantitityMap.entrySet().stream()
+                    .filter(entry -> entry.getValue() > BookItem.MAX_QUANTITY)
+                    .findFirst();
+                if (exceeded.isPresent()) {
+                    return Mono.error(new QuantityExceededException(exceeded.get().getKey(), BookItem.MAX_QUANTITY));
+                }
+
+                return orderMetrics.timed("load-books", bookCatalogueCache.findAllById(bookQuantitityMap.keySet()))
                     .flatMap(booksMap -> validateOrderBooksOrError(booksMap, orderDetails))
-                    .map(booksMap -> this.duplicateBooks(booksMap, bookQuantitityMap))
-                    .map(books -> this.applyLoyalty(orderDetails, books))
-                    .map(books -> calculateBookPrices(orderDetails, books, bookQuantitityMap));
+                    .map(booksMap -> orderMetrics.timed("calculate-book-prices",
+                        () -> pricingEngine.calculateBookPrices(orderDetails, booksMap, bookQuantitityMap)));
             });
     }
 
-    private List<Book> duplicateBooks(Map<Long, Book> booksMap, Map<Long, Integer> bookQuantitityMap) {
-        return booksMap.values().stream()
-            .flatMap(book -> Stream.generate(book::copy).limit(bookQuantitityMap.get(book.getId())))
-            .toList();
-    }
-
-    private List<Book> applyLoyalty(OrderDetails orderDetails, List<Book> books) {
-        if (orderDetails.loyaltyBookId() != null) {
-            books.stream()
-                .filter(book -> orderDetails.loyaltyBookId().equals(book.getId()))
-                .findFirst()
-                .ifPresent(book -> book.setPrice(BigDecimal.ZERO));
-        }
-        return books;
-    }
-
-    private OrderPriceInfo calculateBookPrices(OrderDetails orderDetails, List<Book> books, Map<Long, Integer> bookQuantitityMap) {
-        return books.stream()
-            .map(book -> this.getBookPrice(book, bookQuantitityMap))
-            .collect(Collectors.teeing(
-                    Collectors.reducing(BigDecimal.ZERO, BookPriceItem::price, BigDecimal::add),
-                    Collectors.toList(),
-                    (total, items) -> new OrderPriceInfo(orderDetails.userId(), total, items)
-                )
-            );
-    }
-
     private Mono<Map<Long, Book>> validateOrderBooksOrError(Map<Long, Book> booksMap, OrderDetails orderDetails) {
         var missingIds = orderDetails.items().stream()
             .map(BookItem::bookId)
@@ -116,47 +103,19 @@ public class OrderService {
         return Mono.just(booksMap);
     }
 
-    private Mono<OrderPriceInfo> processUserBalanceAndLoyalty(Tuple2<OrderPriceInfo, OrderDetails> orderInfoTuple) {
+    private Mono<Order> placeOrder(Tuple2<OrderPriceInfo, OrderDetails> orderInfoTuple) {
         var orderPriceInfo = orderInfoTuple.getT1();
         var orderDetails = orderInfoTuple.getT2();
-        var totalBooks = orderPriceInfo.items().size();
-
-        return userRepository.findById(orderPriceInfo.userId())
-            .switchIfEmpty(Mono.error(new UserNotFoundException(orderPriceInfo.userId())))
-            .flatMap(user -> {
-                if (user.getBalance().compareTo(orderPriceInfo.totalPrice()) < 0) {
-                    return Mono.error(new InsufficientBalanceException());
-                }
-
-                var loyalty = (orderDetails.loyaltyBookId() != null && user.getLoyalty() >= 10)
-                    ? 0
-                    : user.getLoyalty() + totalBooks;
-
-                user.setLoyalty(loyalty);
-                user.setBalance(user.getBalance().subtract(orderPriceInfo.totalPrice()));
-                return userRepository.save(user)
-                    .thenReturn(orderPriceInfo);
-            });
-    }
+        var totalBooks = orderPriceInfo.items().stream()
+            .mapToInt(BookPriceItem::quantity)
+            .sum();
+        var resetLoyalty = orderDetails.loyaltyBookId() != null;
 
-    private Mono<Order> saveOrderWithItems(OrderPriceInfo orderPriceInfo) {
-        return orderRepository.save(new Order(orderPriceInfo.userId(), orderPriceInfo.totalPrice()))
-            .flatMap(savedOrder -> {
-                var orderItems = orderPriceInfo.items().stream()
-                    .map(item -> new OrderItem(savedOrder.getId(), item.bookId(), item.price()))
-                    .toList();
-
-                return orderItemRepository.saveAll(orderItems)
-                    .collectList()
-                    .map(savedItems -> {
-                        savedOrder.setOrderItems(savedItems);
-                        return savedOrder;
-                    });
-            });
+        return checkoutStore.placeOrder(orderPriceInfo, resetLoyalty, resetLoyalty ? 0 : totalBooks);
     }
 
     private Mono<OrderDetails> validateUserLoyaltyOrError(OrderDetails details) {
-        return userRepository.findById(details.userId())
+        return checkoutStore.findUser(details.userId())
             .switchIfEmpty(Mono.error(new UserNotFoundException(details.userId())))
             .flatMap(user -> {
                 if (details.loyaltyBookId() != null && user.getLoyalty() < 10) {
@@ -166,34 +125,16 @@ public class OrderService {
             });
     }
 
-
-    private BookPriceItem getBookPrice(Book book, Map<Long, Integer> bookQuantitityMap) {
-        if (book.getPrice().equals(BigDecimal.ZERO)) {
-            return new BookPriceItem(book.getId(), book.getPrice(), 100);
-        }
-
-        int bundleSize = bookQuantitityMap.values().stream()
-            .mapToInt(Integer::intValue)
-            .sum();
-
-        var discount = DiscountUtil.getDiscount(book, bundleSize);
-
-        return new BookPriceItem(book.getId(), DiscountUtil.applyDiscount(book.getPrice(), discount), discount.doubleValue());
+    public Flux<Order> streamAll(OrderFilter filter) {
+        return readOnly(orderRepository.findAllWithItems(filter.userId(), filter.from(), filter.to(),
+            exportProperties.fetchSize()));
     }
 
-    public Flux<Order> findAll() {
-        return orderRepository.findAll()
-            .flatMap(order ->
-                getOrderItems(order).collectList()
-                    .map(items -> {
-                        order.setOrderItems(items);
-                        return order;
-                    }));
-    }
-
-    private Flux<OrderItem> getOrderItems(Order order) {
-        return orderItemRepository.findAllByOrderId(order.getId());
-
+    public Mono<CursorPage<Order>> findPage(OrderFilter filter, PageParams page) {
+        return readOnly(orderRepository.findPageWithItems(filter.userId(), filter.from(), filter.to(),
+                page.afterOrDefault(), page.limitOrDefault() + 1)
+            .collectList()
+            .map(orders -> CursorPage.of(orders, page.limitOrDefault(), Order::getId)));
     }
 
 }
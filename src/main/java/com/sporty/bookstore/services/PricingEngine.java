@@ -0,0 +1,69 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.dtos.BookPriceItem;
+import com.sporty.bookstore.dtos.OrderDetails;
+import com.sporty.bookstore.dtos.OrderPriceInfo;
+import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.models.BookType;
+import com.sporty.bookstore.utils.DiscountUtil;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Prices an order. Discounts only depend on the book type and on whether the order is a bundle, so their
+ * factors are computed once up front and each distinct book is priced with a single multiplication.
+ * Rounding is the same as {@link DiscountUtil#applyDiscount(BigDecimal, BigDecimal)}.
+ */
+@Component
+public class PricingEngine {
+
+    private final Map<BookType, Discount> discounts = new EnumMap<>(BookType.class);
+    private final Map<BookType, Discount> bundleDiscounts = new EnumMap<>(BookType.class);
+
+    public PricingEngine() {
+        for (var type : BookType.values()) {
+            discounts.put(type, Discount.of(DiscountUtil.getDiscount(type, false)));
+            bundleDiscounts.put(type, Discount.of(DiscountUtil.getDiscount(type, true)));
+        }
+    }
+
+    public OrderPriceInfo calculateBookPrices(OrderDetails orderDetails, Map<Long, Book> booksMap, Map<Long, Integer> bookQuantityMap) {
+        int bundleSize = 0;
+        for (int quantity : bookQuantityMap.values()) {
+            bundleSize += quantity;
+        }
+        var orderDiscounts = DiscountUtil.isBundle(bundleSize) ? bundleDiscounts : discounts;
+        var loyaltyBookId = orderDetails.loyaltyBookId();
+
+        var items = new ArrayList<BookPriceItem>(booksMap.size() + 1);
+        var total = BigDecimal.ZERO;
+        for (var book : booksMap.values()) {
+            int quantity = bookQuantityMap.get(book.getId());
+            if (book.getId().equals(loyaltyBookId)) {
+                // One copy of the loyalty book is free, the remaining copies are priced as usual
+                items.add(new BookPriceItem(book.getId(), BigDecimal.ZERO, 100, 1));
+                quantity--;
+                if (quantity == 0) {
+                    continue;
+                }
+            }
+
+            var discount = orderDiscounts.get(book.getType());
+            var price = DiscountUtil.applyDiscountFactor(book.getPrice(), discount.factor());
+            items.add(new BookPriceItem(book.getId(), price, discount.percentage(), quantity));
+            total = total.add(quantity == 1 ? price : price.multiply(BigDecimal.valueOf(quantity)));
+        }
+        return new OrderPriceInfo(orderDetails.userId(), total, items);
+    }
+
+    private record Discount(double percentage, BigDecimal factor) {
+
+        static Discount of(BigDecimal percentage) {
+            return new Discount(percentage.doubleValue(), DiscountUtil.getDiscountFactor(percentage));
+        }
+    }
+}
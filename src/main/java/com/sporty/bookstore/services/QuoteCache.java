@@ -0,0 +1,149 @@
+package com.sporty.bookstore.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sporty.bookstore.dtos.BookItem;
+import com.sporty.bookstore.dtos.OrderDetails;
+import com.sporty.bookstore.dtos.OrderPriceInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Short-lived cache of price quotes keyed by the normalized order (user, loyalty book and merged item quantities).
+ * Concurrent requests for the same quote share one computation. Quotes of a user are evicted when an order changes
+ * the user's loyalty, quotes containing a book when that book changes. The keys are indexed by user and by book,
+ * so an eviction touches only the affected quotes instead of scanning the whole cache.
+ */
+@Component
+public class QuoteCache {
+
+    private final AsyncCache<QuoteKey, OrderPriceInfo> cache;
+    private final Map<Long, Set<QuoteKey>> keysByUser = new ConcurrentHashMap<>();
+    private final Map<Long, Set<QuoteKey>> keysByBook = new ConcurrentHashMap<>();
+
+    public QuoteCache(MeterRegistry meterRegistry,
+                      @Value("${bookstore.quote-cache.ttl:PT5S}") Duration ttl,
+                      @Value("${bookstore.quote-cache.maximum-size:10000}") long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+            .expireAfterWrite(ttl)
+            .maximumSize(maximumSize)
+            // Runs atomically with the eviction, so it cannot unindex a quote cached again for the same key
+            .evictionListener((QuoteKey key, OrderPriceInfo quote, RemovalCause cause) -> unindex(key))
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "quotes");
+    }
+
+    /**
+     * Returns the cached quote for the order, computing it with {@code loader} unless an equal quote is cached
+     * or already being computed. Failed quotes are not cached.
+     */
+    public Mono<OrderPriceInfo> get(OrderDetails orderDetails, Function<OrderDetails, Mono<OrderPriceInfo>> loader) {
+        // Cancellation is suppressed so that one disconnecting client does not fail the quote for the others
+        return Mono.fromFuture(() -> cache.get(QuoteKey.of(orderDetails), (key, executor) -> {
+            index(key);
+            // Failed quotes are dropped by the cache without an eviction
+            return loader.apply(orderDetails)
+                .doOnError(error -> unindex(key))
+                .toFuture();
+        }), true);
+    }
+
+    /**
+     * Evicts the user's quotes once the current transaction completes, so that a quote computed while
+     * the transaction is still open cannot be cached with the old loyalty. Evicts them right away when
+     * no transaction is active.
+     */
+    public Mono<Void> invalidateUserAfterCompletion(Long userId) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+            .filter(TransactionSynchronizationManager::isSynchronizationActive)
+            .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public Mono<Void> afterCompletion(int status) {
+                    return Mono.fromRunnable(() -> invalidateUser(userId));
+                }
+            }))
+            .onErrorResume(NoTransactionException.class, error -> Mono.empty())
+            .switchIfEmpty(Mono.fromRunnable(() -> invalidateUser(userId)))
+            .then();
+    }
+
+    public void invalidateUser(Long userId) {
+        invalidate(keysByUser.remove(userId));
+    }
+
+    public void invalidateBook(Long bookId) {
+        invalidate(keysByBook.remove(bookId));
+    }
+
+    public void invalidateAll() {
+        keysByUser.clear();
+        keysByBook.clear();
+        cache.synchronous().invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    private void invalidate(Set<QuoteKey> keys) {
+        if (keys == null) {
+            return;
+        }
+        // Unindexed before the eviction: a quote cached again in between is evicted as well, and at worst
+        // leaves an index entry without a quote behind
+        keys.forEach(this::unindex);
+        cache.synchronous().invalidateAll(keys);
+    }
+
+    private void index(QuoteKey key) {
+        addToIndex(keysByUser, key.userId(), key);
+        key.items().keySet().forEach(bookId -> addToIndex(keysByBook, bookId, key));
+    }
+
+    private void unindex(QuoteKey key) {
+        removeFromIndex(keysByUser, key.userId(), key);
+        key.items().keySet().forEach(bookId -> removeFromIndex(keysByBook, bookId, key));
+    }
+
+    private static void addToIndex(Map<Long, Set<QuoteKey>> index, Long id, QuoteKey key) {
+        index.compute(id, (ignored, keys) -> {
+            var indexedKeys = keys == null ? new HashSet<QuoteKey>() : keys;
+            indexedKeys.add(key);
+            return indexedKeys;
+        });
+    }
+
+    private static void removeFromIndex(Map<Long, Set<QuoteKey>> index, Long id, QuoteKey key) {
+        index.computeIfPresent(id, (ignored, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private record QuoteKey(Long userId, Long loyaltyBookId, Map<Long, Integer> items) {
+
+        static QuoteKey of(OrderDetails orderDetails) {
+            var items = orderDetails.items().stream()
+                .collect(Collectors.toMap(BookItem::bookId, BookItem::quantity, Integer::sum, TreeMap::new));
+            return new QuoteKey(orderDetails.userId(), orderDetails.loyaltyBookId(), items);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.dtos.OrderPriceInfo;
+import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.entities.Order;
+import com.sporty.bookstore.entities.OrderItem;
+import com.sporty.bookstore.entities.User;
+import com.sporty.bookstore.exceptions.types.UserNotFoundException;
+import com.sporty.bookstore.metrics.OrderMetrics;
+import com.sporty.bookstore.repositories.BookRepository;
+import com.sporty.bookstore.repositories.OrderItemRepository;
+import com.sporty.bookstore.repositories.OrderRepository;
+import com.sporty.bookstore.repositories.UserOrderStatsRepository;
+import com.sporty.bookstore.repositories.UserRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Places orders through the R2DBC repositories. The order joins the caller's transaction when there is one.
+ */
+@Component
+@AllArgsConstructor
+public class R2dbcCheckoutStore implements CheckoutStore {
+
+    private final BookRepository bookRepository;
+    private final UserRepository userRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final UserOrderStatsRepository userOrderStatsRepository;
+    private final OrderOutbox orderOutbox;
+    private final OrderMetrics orderMetrics;
+    private final TransactionalOperator transactionalOperator;
+
+    @Override
+    public Flux<Book> findBooks(Collection<Long> ids) {
+        return bookRepository.findAllByIds(ids.toArray(Long[]::new));
+    }
+
+    @Override
+    public Mono<User> findUser(Long userId) {
+        return userRepository.findById(userId);
+    }
+
+    @Override
+    public Mono<Order> placeOrder(OrderPriceInfo orderPriceInfo, boolean resetLoyalty, int loyaltyPoints) {
+        return transactionalOperator.transactional(
+            orderMetrics.timed("process-user-balance-and-loyalty", debitBalance(orderPriceInfo, resetLoyalty, loyaltyPoints))
+                .then(orderMetrics.timed("save-order-with-items", saveOrderWithItems(orderPriceInfo))));
+    }
+
+    private Mono<User> debitBalance(OrderPriceInfo orderPriceInfo, boolean resetLoyalty, int loyaltyPoints) {
+        var userId = orderPriceInfo.userId();
+        // An empty result means the conditional update rejected the debit; the current row tells which condition failed
+        return userRepository.debitBalanceAndUpdateLoyalty(userId, orderPriceInfo.totalPrice(), resetLoyalty, loyaltyPoints)
+            .switchIfEmpty(Mono.defer(() -> userRepository.findById(userId)
+                .flatMap(user -> Mono.<User>error(CheckoutStore.debitRejected(user, resetLoyalty)))
+                .switchIfEmpty(Mono.error(new UserNotFoundException(userId)))));
+    }
+
+    private Mono<Order> saveOrderWithItems(OrderPriceInfo orderPriceInfo) {
+        return orderRepository.save(new Order(orderPriceInfo.userId(), orderPriceInfo.totalPrice()))
+            .flatMap(savedOrder -> {
+                var orderItems = orderPriceInfo.items().stream()
+                    .map(item -> new OrderItem(savedOrder.getId(), item.bookId(), item.price(), item.quantity()))
+                    .toList();
+
+                return orderItemRepository.insertAll(orderItems)
+                    .collectList()
+                    .map(savedItems -> {
+                        savedOrder.setOrderItems(savedItems);
+                        return savedOrder;
+                    });
+            })
+            .flatMap(savedOrder -> userOrderStatsRepository.recordOrder(savedOrder.getUserId(),
+                    savedOrder.getTotalPrice(), savedOrder.getCreatedAt())
+                .then(orderOutbox.orderCreated(savedOrder))
+                .thenReturn(savedOrder));
+    }
+}
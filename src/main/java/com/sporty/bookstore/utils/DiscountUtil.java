@@ -1,6 +1,7 @@
 package com.sporty.bookstore.utils;
 
 import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.models.BookType;
 
 import java.math.BigDecimal;
 
@@ -15,8 +16,11 @@ public class DiscountUtil {
     private static final BigDecimal OLD_EDITION_BUNDLE_DISCOUNT = BigDecimal.valueOf(25);
 
     public static BigDecimal getDiscount(Book book, int totalBooks) {
-        var isBundle = totalBooks >= BUNDLE_SIZE;
-        return switch (book.getType()) {
+        return getDiscount(book.getType(), isBundle(totalBooks));
+    }
+
+    public static BigDecimal getDiscount(BookType type, boolean isBundle) {
+        return switch (type) {
             case NEW_RELEASES -> NO_DISCOUNT;
             case REGULAR -> isBundle
                 ? REGULAR_BUNDLE_DISCOUNT
@@ -27,10 +31,23 @@ public class DiscountUtil {
         };
     }
 
+    public static boolean isBundle(int totalBooks) {
+        return totalBooks >= BUNDLE_SIZE;
+    }
+
     public static BigDecimal applyDiscount(BigDecimal price, BigDecimal discountPercentage) {
+        return applyDiscountFactor(price, getDiscountFactor(discountPercentage));
+    }
+
+    /**
+     * Returns the multiplier applied to a price for the given discount percentage, e.g. 0.90 for 10%.
+     */
+    public static BigDecimal getDiscountFactor(BigDecimal discountPercentage) {
         BigDecimal discountFactor = discountPercentage.divide(BigDecimal.valueOf(100), 2, HALF_UP);
-        BigDecimal discountAmount = BigDecimal.valueOf(1).subtract(discountFactor);
+        return BigDecimal.valueOf(1).subtract(discountFactor);
+    }
 
-        return price.multiply(discountAmount).setScale(2, HALF_UP);
+    public static BigDecimal applyDiscountFactor(BigDecimal price, BigDecimal discountFactor) {
+        return price.multiply(discountFactor).setScale(2, HALF_UP);
     }
 }
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+-- changeset ivan:6 runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_order_items_order_id ON order_items (order_id);
+
+-- changeset ivan:7 runInTransaction:false
+-- Also serves lookups by user_id alone, so no separate single-column index is needed
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_user_id_created_at ON orders (user_id, created_at);
@@ -0,0 +1,7 @@
+--liquibase formatted sql
+
+-- changeset ivan:9
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE books ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE orders ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE order_items ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,16 @@
+--liquibase formatted sql
+
+-- changeset ivan:10
+CREATE TABLE user_order_stats (
+    user_id INTEGER PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    total_spent DECIMAL(14, 2) NOT NULL DEFAULT 0.00,
+    last_order_at TIMESTAMPTZ,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- changeset ivan:11
+INSERT INTO user_order_stats (user_id, order_count, total_spent, last_order_at)
+SELECT user_id, COUNT(*), SUM(total_price), MAX(created_at)
+FROM orders
+GROUP BY user_id;
@@ -0,0 +1,13 @@
+--liquibase formatted sql
+
+-- changeset ivan:12
+CREATE TABLE order_events (
+    id BIGSERIAL PRIMARY KEY,
+    order_id INTEGER NOT NULL REFERENCES orders(id) ON DELETE CASCADE,
+    event_type VARCHAR(50) NOT NULL,
+    payload JSONB NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    published_at TIMESTAMPTZ
+);
+
+CREATE INDEX idx_order_events_unpublished ON order_events (id) WHERE published_at IS NULL;
@@ -0,0 +1,19 @@
+--liquibase formatted sql
+
+-- changeset ivan:13 splitStatements:false
+CREATE FUNCTION notify_book_change() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        PERFORM pg_notify('book_changes', json_build_object('id', OLD.id, 'operation', TG_OP)::text);
+    ELSIF NEW.price IS DISTINCT FROM OLD.price OR NEW.type IS DISTINCT FROM OLD.type THEN
+        PERFORM pg_notify('book_changes', json_build_object(
+            'id', NEW.id, 'operation', TG_OP, 'price', NEW.price, 'type', NEW.type)::text);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- changeset ivan:14
+CREATE TRIGGER books_notify_change
+    AFTER UPDATE OF price, type OR DELETE ON books
+    FOR EACH ROW EXECUTE FUNCTION notify_book_change();
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+-- changeset ivan:15
+-- Keys claimed before this column existed keep a NULL hash and are matched on the user only
+ALTER TABLE idempotency_keys ADD COLUMN request_hash VARCHAR(64);
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+-- changeset ivan:16 runInTransaction:false
+-- Lets the retention cleanup find expired keys without scanning the table
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_idempotency_keys_created_at ON idempotency_keys (created_at);
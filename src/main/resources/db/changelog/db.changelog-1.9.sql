@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+-- changeset ivan:17 runInTransaction:false
+-- Lets the outbox retention find published events without scanning the unpublished ones
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_order_events_published_at ON order_events (published_at) WHERE published_at IS NOT NULL;
@@ -0,0 +1,63 @@
+package com.sporty.bookstore.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "bookstore.r2dbc-pool.initial-size=4",
+    "bookstore.r2dbc-pool.max-size=6"
+})
+class R2dbcPoolConfigTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17.4-alpine");
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    @Qualifier(R2dbcPoolConfig.PRIMARY_POOL)
+    private ConnectionPool connectionPool;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void test_pool__configured_and_warmed_up_before_ready() {
+        var metrics = connectionPool.getMetrics().orElseThrow();
+        assertThat(metrics.getMaxAllocatedSize()).isEqualTo(6);
+        assertThat(metrics.allocatedSize()).isGreaterThanOrEqualTo(4);
+
+        webTestClient.get().uri("/actuator/health/readiness")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.status").isEqualTo("UP");
+    }
+
+    @Test
+    void test_pool__acquire_latency_recorded() {
+        var timer = meterRegistry.find(TimedConnectionPool.ACQUIRE_TIMER).tags("pool", "primary", "outcome", "success").timer();
+        assertThat(timer).isNotNull();
+        var acquiredBefore = timer.count();
+
+        webTestClient.get().uri("/books")
+            .exchange()
+            .expectStatus().isOk();
+
+        assertThat(timer.count()).isGreaterThan(acquiredBefore);
+    }
+}
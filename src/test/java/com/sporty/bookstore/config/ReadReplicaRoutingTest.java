@@ -0,0 +1,203 @@
+package com.sporty.bookstore.config;
+
+import com.sporty.bookstore.dtos.BookData;
+import com.sporty.bookstore.dtos.BookItem;
+import com.sporty.bookstore.dtos.BookUpdate;
+import com.sporty.bookstore.dtos.OrderDetails;
+import com.sporty.bookstore.dtos.UserData;
+import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.entities.User;
+import com.sporty.bookstore.repositories.BookRepository;
+import com.sporty.bookstore.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static com.sporty.bookstore.config.ReadReplicaRoutingConnectionFactory.readOnly;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The replica is a second pool on the same database, opened with {@code default_transaction_read_only}, so the pools'
+ * acquisition counts show where each query went and a write sent to the replica fails. The outbox relay is off, so
+ * no background query takes a primary connection.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "bookstore.outbox.relay-enabled=false")
+class ReadReplicaRoutingTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17.4-alpine");
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        registry.add("bookstore.r2dbc-replica.url", () -> "r2dbc:postgresql://%s:%d/%s".formatted(
+            postgres.getHost(), postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT), postgres.getDatabaseName()));
+        registry.add("bookstore.r2dbc-replica.username", postgres::getUsername);
+        registry.add("bookstore.r2dbc-replica.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private R2dbcEntityTemplate postgresTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    @Qualifier(R2dbcPoolConfig.REPLICA_POOL)
+    private ConnectionPool replicaConnectionPool;
+
+    @Autowired
+    private R2dbcPoolProperties poolProperties;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private Book book;
+
+    @BeforeEach
+    void beforeEach() {
+        user = createUser();
+        book = webTestClient.post().uri("/books")
+            .bodyValue(new BookData("Java", BigDecimal.valueOf(1000, 2), "REGULAR"))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(Book.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    @AfterEach
+    void cleanUpDatabase() {
+        postgresTemplate.getDatabaseClient()
+            .sql("TRUNCATE TABLE books, users RESTART IDENTITY CASCADE")
+            .fetch()
+            .rowsUpdated()
+            .block();
+    }
+
+    @Test
+    void test_startup__replica_pool_warmed_up() {
+        assertThat(replicaConnectionPool.getMetrics().orElseThrow().allocatedSize())
+            .isGreaterThanOrEqualTo(poolProperties.initialSize());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/books", "/books/{bookId}", "/users", "/users/{userId}", "/users/{userId}/orders",
+        "/users/{userId}/summary", "/orders"})
+    void test_get_endpoint__read_from_replica(String uri) {
+        var replicaAcquisitions = acquisitions("replica");
+        var primaryAcquisitions = acquisitions("primary");
+
+        webTestClient.get().uri(uri.replace("{bookId}", book.getId().toString()).replace("{userId}", user.getId().toString()))
+            .exchange()
+            .expectStatus().isOk();
+
+        assertThat(acquisitions("replica")).isGreaterThan(replicaAcquisitions);
+        assertThat(acquisitions("primary")).isEqualTo(primaryAcquisitions);
+    }
+
+    @Test
+    void test_stream_orders__read_from_replica() {
+        var replicaAcquisitions = acquisitions("replica");
+        var primaryAcquisitions = acquisitions("primary");
+
+        webTestClient.get().uri("/orders")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(Object.class)
+            .getResponseBody()
+            .blockLast();
+
+        assertThat(acquisitions("replica")).isGreaterThan(replicaAcquisitions);
+        assertThat(acquisitions("primary")).isEqualTo(primaryAcquisitions);
+    }
+
+    @Test
+    void test_writes_and_checkout__stay_on_primary() {
+        var replicaAcquisitions = acquisitions("replica");
+        var primaryAcquisitions = acquisitions("primary");
+
+        createUser();
+        webTestClient.patch().uri("/books/%d".formatted(book.getId()))
+            .bodyValue(new BookUpdate(null, BigDecimal.valueOf(900, 2), null))
+            .exchange()
+            .expectStatus().isOk();
+        webTestClient.post().uri("/orders")
+            .bodyValue(new OrderDetails(user.getId(), null, List.of(new BookItem(book.getId(), 1))))
+            .exchange()
+            .expectStatus().isCreated();
+
+        assertThat(acquisitions("replica")).isEqualTo(replicaAcquisitions);
+        assertThat(acquisitions("primary")).isGreaterThan(primaryAcquisitions);
+    }
+
+    @Test
+    void test_marked_read_in_transaction__stays_on_transaction_connection() {
+        var replicaAcquisitions = acquisitions("replica");
+
+        var updated = transactionalOperator.transactional(readOnly(bookRepository.findById(book.getId()))
+                .flatMap(found -> userRepository.addBalance(user.getId(), found.getPrice())))
+            .block();
+
+        assertThat(updated.getBalance()).isEqualTo(BigDecimal.valueOf(2000, 2));
+        assertThat(acquisitions("replica")).isEqualTo(replicaAcquisitions);
+    }
+
+    @Test
+    void test_marked_write__rejected_by_read_only_replica() {
+        StepVerifier.create(readOnly(userRepository.addBalance(user.getId(), BigDecimal.ONE)))
+            .expectErrorSatisfies(error -> assertThat(error)
+                .isInstanceOf(DataAccessException.class)
+                .hasMessageContaining("read-only transaction"))
+            .verify();
+    }
+
+    private User createUser() {
+        return webTestClient.post().uri("/users")
+            .bodyValue(new UserData("Test", BigDecimal.valueOf(1000, 2)))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(User.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private long acquisitions(String pool) {
+        return meterRegistry.get(TimedConnectionPool.ACQUIRE_TIMER).tags("pool", pool, "outcome", "success").timer().count();
+    }
+}
@@ -1,30 +1,46 @@
 package com.sporty.bookstore.controllers;
 
+import com.sporty.bookstore.dtos.BookChange;
 import com.sporty.bookstore.dtos.BookData;
+import com.sporty.bookstore.dtos.BookImportError;
+import com.sporty.bookstore.dtos.BookImportSummary;
 import com.sporty.bookstore.dtos.BookUpdate;
+import com.sporty.bookstore.dtos.CursorPage;
 import com.sporty.bookstore.entities.Book;
 import com.sporty.bookstore.exceptions.ErrorResponse;
 import com.sporty.bookstore.exceptions.FieldError;
+import com.sporty.bookstore.models.BookType;
+import com.sporty.bookstore.services.BookCatalogueCache;
+import com.sporty.bookstore.services.BookChangeFeed;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.FieldSource;
+import org.reactivestreams.Subscription;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Named.named;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
@@ -42,8 +58,17 @@ public class BookControllerTest {
     @Autowired
     private R2dbcEntityTemplate postgresTemplate;
 
+    @Autowired
+    private BookCatalogueCache bookCatalogueCache;
+
+    @Autowired
+    private BookChangeFeed bookChangeFeed;
+
     private static final BookData TEST_BOOK = new BookData("Java", BigDecimal.valueOf(10.55), "NEW_RELEASES");
 
+    private static final ParameterizedTypeReference<CursorPage<Book>> BOOK_PAGE = new ParameterizedTypeReference<>() {
+    };
+
     @AfterEach
     void cleanUpDatabase() {
         postgresTemplate.getDatabaseClient()
@@ -300,9 +325,11 @@ public class BookControllerTest {
         webTestClient.get().uri("/books")
             .exchange()
             .expectStatus().isOk()
-            .expectBodyList(Book.class)
-            .hasSize(1)
-            .value(books -> assertThat(books.getFirst()).isEqualTo(createdBook));
+            .expectBody(BOOK_PAGE)
+            .value(page -> {
+                assertThat(page.items()).containsExactly(createdBook);
+                assertThat(page.nextCursor()).isNull();
+            });
     }
 
     @Test
@@ -310,8 +337,202 @@ public class BookControllerTest {
         webTestClient.get().uri("/books")
             .exchange()
             .expectStatus().isOk()
-            .expectBodyList(Book.class)
-            .value(books -> assertThat(books).isEmpty());
+            .expectBody(BOOK_PAGE)
+            .value(page -> assertThat(page.items()).isEmpty());
+    }
+
+    @Test
+    void test_get_books_paginated__next_cursor() {
+        Book firstBook = this.createBook(TEST_BOOK);
+        Book secondBook = this.createBook(TEST_BOOK);
+        Book thirdBook = this.createBook(TEST_BOOK);
+
+        var firstPage = getBooksPage("/books?limit=2");
+
+        assertThat(firstPage.items()).containsExactly(firstBook, secondBook);
+        assertThat(firstPage.nextCursor()).isEqualTo(secondBook.getId());
+
+        var secondPage = getBooksPage("/books?limit=2&after=%d".formatted(firstPage.nextCursor()));
+
+        assertThat(secondPage.items()).containsExactly(thirdBook);
+        assertThat(secondPage.nextCursor()).isNull();
+    }
+
+    @Test
+    void test_get_books_filtered__type_and_price_range() {
+        Book cheapRegularBook = this.createBook(new BookData("Cheap", BigDecimal.valueOf(500, 2), "REGULAR"));
+        Book regularBook = this.createBook(new BookData("Regular", BigDecimal.valueOf(2000, 2), "REGULAR"));
+        this.createBook(new BookData("Expensive", BigDecimal.valueOf(9000, 2), "REGULAR"));
+        this.createBook(new BookData("Old", BigDecimal.valueOf(2000, 2), "OLD_EDITIONS"));
+
+        assertThat(getBooksPage("/books?type=REGULAR&minPrice=10&maxPrice=50").items())
+            .containsExactly(regularBook);
+        assertThat(getBooksPage("/books?type=REGULAR&maxPrice=20").items())
+            .containsExactly(cheapRegularBook, regularBook);
+    }
+
+    private static final List<MediaType> streamingMediaTypes = List.of(MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM);
+
+    @ParameterizedTest
+    @FieldSource("streamingMediaTypes")
+    void test_stream_books_filtered__all_matching_books_in_id_order(MediaType mediaType) {
+        Book cheapRegularBook = this.createBook(new BookData("Cheap", BigDecimal.valueOf(500, 2), "REGULAR"));
+        Book regularBook = this.createBook(new BookData("Regular", BigDecimal.valueOf(2000, 2), "REGULAR"));
+        this.createBook(new BookData("Expensive", BigDecimal.valueOf(9000, 2), "REGULAR"));
+        this.createBook(new BookData("Old", BigDecimal.valueOf(2000, 2), "OLD_EDITIONS"));
+
+        var books = webTestClient.get().uri("/books?type=REGULAR&maxPrice=20")
+            .accept(mediaType)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(mediaType)
+            .returnResult(Book.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertThat(books).containsExactly(cheapRegularBook, regularBook);
+    }
+
+    @Test
+    void test_import_books_csv__valid_rows_copied_and_invalid_rows_reported() {
+        var csv = """
+            title,price,type
+            Java,10.55,NEW_RELEASES
+            "Clean Code, 2nd ""Edition""\",20.00,REGULAR
+            Broken,5.00,UNKNOWN
+
+            Cheap,not-a-price,OLD_EDITIONS
+            Too,many,columns,here
+            """;
+
+        var summaries = importBooks(MediaType.parseMediaType("text/csv"), csv);
+
+        assertThat(summaries).containsExactly(new BookImportSummary(2, 3, List.of(
+            new BookImportError(4, List.of(new FieldError("type", "Book type must be valid enum value"))),
+            new BookImportError(6, List.of(new FieldError("price", "Book price must be a number"))),
+            new BookImportError(7, List.of(new FieldError("row", "Row must have columns title,price,type")))
+        )));
+        assertThat(getBooksPage("/books").items())
+            .extracting(Book::getTitle, Book::getPrice, Book::getType)
+            .containsExactly(
+                tuple("Java", BigDecimal.valueOf(1055, 2), BookType.NEW_RELEASES),
+                tuple("Clean Code, 2nd \"Edition\"", BigDecimal.valueOf(2000, 2), BookType.REGULAR));
+    }
+
+    @Test
+    void test_import_books_ndjson__valid_rows_copied_and_invalid_rows_reported() {
+        var ndjson = """
+            {"title":"Java","price":10.55,"type":"NEW_RELEASES"}
+            {"title":"J","price":10.55,"type":"REGULAR"}
+            {"title":
+            {"title":"Kotlin","price":20.00,"type":"OLD_EDITIONS"}
+            """;
+
+        var summaries = importBooks(MediaType.APPLICATION_NDJSON, ndjson);
+
+        assertThat(summaries).containsExactly(new BookImportSummary(2, 2, List.of(
+            new BookImportError(2, List.of(new FieldError("title", "Book title must be between 2 and 50 characters long"))),
+            new BookImportError(3, List.of(new FieldError("row", "Row must be a valid book JSON object")))
+        )));
+        assertThat(getBooksPage("/books").items())
+            .extracting(Book::getTitle)
+            .containsExactly("Java", "Kotlin");
+    }
+
+    @Test
+    void test_stream_book_changes__price_and_type_updates_and_deletes() {
+        Book book = this.createBook(TEST_BOOK);
+        Book unchangedBook = this.createBook(TEST_BOOK);
+
+        // The response only starts once the stream is subscribed, so the changes are made in the background
+        Schedulers.boundedElastic().schedule(() -> {
+            updateBook(unchangedBook.getId(), new BookUpdate("Renamed", null, null));
+            updateBook(book.getId(), new BookUpdate(null, BigDecimal.valueOf(2000, 2), "REGULAR"));
+            webTestClient.delete().uri("/books/%s".formatted(book.getId())).exchange().expectStatus().isNoContent();
+        }, 1, TimeUnit.SECONDS);
+
+        var changes = webTestClient.get().uri("/books/changes")
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(BookChange.class)
+            .getResponseBody()
+            .take(2)
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertThat(changes).containsExactly(
+            new BookChange(book.getId(), "UPDATE", BigDecimal.valueOf(2000, 2), BookType.REGULAR),
+            new BookChange(book.getId(), "DELETE", null, null));
+    }
+
+    @Test
+    void test_book_change_from_another_instance__evicts_cached_book() {
+        Book book = this.createBook(TEST_BOOK);
+        assertThat(bookCatalogueCache.findAllById(Set.of(book.getId())).block().get(book.getId()).getPrice())
+            .isEqualTo(TEST_BOOK.price());
+        var changes = bookChangeFeed.changes().take(Duration.ofSeconds(10)).replay().autoConnect(0);
+
+        // Written directly, as another API instance would, so only the change feed can evict the cached book
+        postgresTemplate.getDatabaseClient()
+            .sql("UPDATE books SET price = 42.00 WHERE id = %d".formatted(book.getId()))
+            .fetch()
+            .rowsUpdated()
+            .block();
+
+        assertThat(changes.blockFirst(Duration.ofSeconds(10)).id()).isEqualTo(book.getId());
+        assertThat(bookCatalogueCache.findAllById(Set.of(book.getId())).block().get(book.getId()).getPrice())
+            .isEqualTo(BigDecimal.valueOf(4200, 2));
+    }
+
+    @Test
+    void test_book_change_with_stalled_subscriber__later_subscriber_still_receives_changes() {
+        Book book = this.createBook(TEST_BOOK);
+        var stalledSubscriber = new BaseSubscriber<BookChange>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // Requests nothing, like a client that stopped reading
+            }
+        };
+        bookChangeFeed.changes().subscribe(stalledSubscriber);
+
+        // The only subscriber has no demand for this change
+        updateBook(book.getId(), new BookUpdate(null, BigDecimal.valueOf(2000, 2), null));
+        // The book is evicted right before the change is published
+        Mono.defer(() -> bookCatalogueCache.findAllById(Set.of(book.getId())))
+            .filter(books -> books.get(book.getId()).getPrice().equals(BigDecimal.valueOf(2000, 2)))
+            .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(50)))
+            .block(Duration.ofSeconds(10));
+
+        var changes = bookChangeFeed.changes().take(Duration.ofSeconds(10)).replay().autoConnect(0);
+        updateBook(book.getId(), new BookUpdate(null, BigDecimal.valueOf(3000, 2), null));
+
+        var change = changes
+            .filter(received -> BigDecimal.valueOf(3000, 2).equals(received.price()))
+            .blockFirst(Duration.ofSeconds(10));
+        assertThat(change.id()).isEqualTo(book.getId());
+        stalledSubscriber.dispose();
+    }
+
+    @Test
+    void test_get_books_invalid_filter__validation_errors() {
+        webTestClient.get().uri("/books?type=INVALID_TYPE")
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(ErrorResponse.class)
+            .value(errorResponse -> {
+                assertThat(errorResponse.message()).isEqualTo("Validation failed for one or more fields");
+                assertThat(errorResponse.errors()).contains(new FieldError("type", "Book type must be valid enum value"));
+            });
+
+        webTestClient.get().uri("/books?limit=101")
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(ErrorResponse.class)
+            .value(errorResponse -> {
+                assertThat(errorResponse.errors()).contains(new FieldError("limit", "Limit must not exceed 100"));
+            });
     }
 
     @Test
@@ -357,6 +578,35 @@ public class BookControllerTest {
             });
     }
 
+    private CursorPage<Book> getBooksPage(String uri) {
+        return webTestClient.get().uri(uri)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(BOOK_PAGE)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private List<BookImportSummary> importBooks(MediaType contentType, String body) {
+        return webTestClient.post().uri("/books/import")
+            .contentType(contentType)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(body)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(BookImportSummary.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+    }
+
+    private void updateBook(Long id, BookUpdate bookUpdate) {
+        webTestClient.patch().uri("/books/%s".formatted(id))
+            .bodyValue(bookUpdate)
+            .exchange()
+            .expectStatus().isOk();
+    }
+
     private Book createBook(BookData bookData) {
         return webTestClient.post().uri("/books")
             .bodyValue(bookData)
@@ -1,11 +1,26 @@
 package com.sporty.bookstore.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sporty.bookstore.dtos.*;
 import com.sporty.bookstore.entities.Book;
 import com.sporty.bookstore.entities.Order;
+import com.sporty.bookstore.entities.OrderEvent;
 import com.sporty.bookstore.entities.User;
+import com.sporty.bookstore.entities.UserOrderStats;
 import com.sporty.bookstore.exceptions.ErrorResponse;
 import com.sporty.bookstore.exceptions.FieldError;
+import com.sporty.bookstore.exceptions.types.LoyaltyNotAcceptableException;
+import com.sporty.bookstore.metrics.OrderMetrics;
+import com.sporty.bookstore.services.BookCatalogueCache;
+import com.sporty.bookstore.services.CheckoutLanes;
+import com.sporty.bookstore.services.CheckoutStore;
+import com.sporty.bookstore.services.IdempotencyKeyCleanup;
+import com.sporty.bookstore.services.IdempotentOrderService;
+import com.sporty.bookstore.services.InMemoryOrderEventSink;
+import com.sporty.bookstore.services.OrderEventRelay;
+import com.sporty.bookstore.services.QuoteCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,24 +30,32 @@ import org.junit.jupiter.params.provider.FieldSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 
 import static java.math.RoundingMode.HALF_UP;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static org.assertj.core.api.AssertionsForClassTypes.tuple;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
 @Testcontainers
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "bookstore.outbox.relay-enabled=false")
 public class OrderControllerTest {
 
     @Container
@@ -45,12 +68,42 @@ public class OrderControllerTest {
     @Autowired
     private R2dbcEntityTemplate postgresTemplate;
 
+    @Autowired
+    private BookCatalogueCache bookCatalogueCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdempotentOrderService idempotentOrderService;
+
+    @Autowired
+    private QuoteCache quoteCache;
+
+    @Autowired
+    private IdempotencyKeyCleanup idempotencyKeyCleanup;
+
+    @Autowired
+    private InMemoryOrderEventSink orderEventSink;
+
+    @Autowired
+    private OrderEventRelay orderEventRelay;
+
+    @Autowired
+    private CheckoutStore checkoutStore;
+
     private static final BookData NEW_RELEASE_BOOK = new BookData("JS", BigDecimal.valueOf(100, 2), "NEW_RELEASES");
     private static final BookData REGULAR_BOOK = new BookData("Java", BigDecimal.valueOf(50, 2), "REGULAR");
     private static final BookData OLD_EDITION_BOOK = new BookData("Kotlin", BigDecimal.valueOf(25, 2), "OLD_EDITIONS");
 
     private static final UserData TEST_USER = new UserData("Test", BigDecimal.valueOf(1000, 2));
 
+    private static final ParameterizedTypeReference<CursorPage<Order>> ORDER_PAGE = new ParameterizedTypeReference<>() {
+    };
+
     @AfterEach
     void cleanUpDatabase() {
         postgresTemplate.getDatabaseClient()
@@ -58,6 +111,9 @@ public class OrderControllerTest {
             .fetch()
             .rowsUpdated()
             .block();
+        bookCatalogueCache.invalidateAll();
+        idempotentOrderService.invalidateAll();
+        quoteCache.invalidateAll();
     }
 
     private User user;
@@ -100,11 +156,8 @@ public class OrderControllerTest {
             .value(priceInfo -> {
                 assertThat(priceInfo.totalPrice()).isEqualTo(totalPrice);
                 assertThat(priceInfo.items())
-                    .hasSize(2)
-                    .containsAll(List.of(
-                        new BookPriceItem(oldEditionBook.getId(), expectedOldEditionPrice, 20),
-                        new BookPriceItem(oldEditionBook.getId(), expectedOldEditionPrice, 20)
-                    ));
+                    .hasSize(1)
+                    .containsExactly(new BookPriceItem(oldEditionBook.getId(), expectedOldEditionPrice, 20, 2));
             });
     }
 
@@ -138,9 +191,9 @@ public class OrderControllerTest {
                 assertThat(priceInfo.items())
                     .hasSize(3)
                     .containsAll(List.of(
-                        new BookPriceItem(regularBook.getId(), BigDecimal.ZERO, 100),
-                        new BookPriceItem(regularBook.getId(), expectedRegularPrice, 10),
-                        new BookPriceItem(oldEditionBook.getId(), expectedOldEditionPrice, 25)
+                        new BookPriceItem(regularBook.getId(), BigDecimal.ZERO, 100, 1),
+                        new BookPriceItem(regularBook.getId(), expectedRegularPrice, 10, 1),
+                        new BookPriceItem(oldEditionBook.getId(), expectedOldEditionPrice, 25, 1)
                     ));
             });
     }
@@ -178,18 +231,90 @@ public class OrderControllerTest {
             .value(priceInfo -> {
                 assertThat(priceInfo.totalPrice()).isEqualTo(totalPrice);
                 assertThat(priceInfo.items())
-                    .hasSize(6)
+                    .hasSize(4)
                     .containsExactlyInAnyOrderElementsOf(List.of(
-                        new BookPriceItem(newReleaseBook.getId(), newReleaseBook.getPrice(), 0),
-                        new BookPriceItem(newReleaseBook.getId(), newReleaseBook.getPrice(), 0),
-                        new BookPriceItem(regularBook.getId(), expectedRegularPrice, 10),
-                        new BookPriceItem(regularBook.getId(), expectedRegularPrice, 10),
-                        new BookPriceItem(oldEditionBook.getId(), expectedOldEditionPrice, 25),
-                        new BookPriceItem(oldEditionBook2.getId(), expectedOldEditionPrice, 25)
+                        new BookPriceItem(newReleaseBook.getId(), newReleaseBook.getPrice(), 0, 2),
+                        new BookPriceItem(regularBook.getId(), expectedRegularPrice, 10, 2),
+                        new BookPriceItem(oldEditionBook.getId(), expectedOldEditionPrice, 25, 1),
+                        new BookPriceItem(oldEditionBook2.getId(), expectedOldEditionPrice, 25, 1)
                     ));
             });
     }
 
+    @Test
+    void test_calculate_price_cached_books__no_book_queries() {
+        OrderDetails orderDetails = new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 1)));
+        calculatePrice(orderDetails);
+        var statsBefore = bookCatalogueCache.stats();
+
+        // Changed behind the API, so only a database read could observe the new price
+        postgresTemplate.getDatabaseClient()
+            .sql("UPDATE books SET price = 99 WHERE id = %d".formatted(regularBook.getId()))
+            .fetch()
+            .rowsUpdated()
+            .block();
+
+        // A different quantity, so the quote itself is not served from the quote cache
+        var priceInfo = calculatePrice(new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 2))));
+        var stats = bookCatalogueCache.stats().minus(statsBefore);
+
+        assertThat(priceInfo.totalPrice()).isEqualTo(regularBook.getPrice().multiply(BigDecimal.valueOf(2)));
+        assertThat(stats.hitCount()).isEqualTo(1);
+        assertThat(stats.missCount()).isZero();
+        assertThat(stats.loadCount()).isZero();
+    }
+
+    @Test
+    void test_calculate_price_concurrent_identical_quotes__computed_once() {
+        var statsBefore = quoteCache.stats();
+
+        var quotes = Flux.range(0, 10)
+            .flatMap(request -> Mono.fromCallable(() -> calculatePrice(new OrderDetails(user.getId(), null,
+                    // The same order written with differently split lines normalizes to one quote
+                    request % 2 == 0
+                        ? List.of(new BookItem(regularBook.getId(), 2), new BookItem(oldEditionBook.getId(), 1))
+                        : List.of(new BookItem(oldEditionBook.getId(), 1), new BookItem(regularBook.getId(), 1),
+                            new BookItem(regularBook.getId(), 1)))))
+                .subscribeOn(Schedulers.boundedElastic()))
+            .collectList()
+            .block();
+        var stats = quoteCache.stats().minus(statsBefore);
+
+        assertThat(quotes).containsOnly(quotes.getFirst());
+        assertThat(stats.loadCount()).isEqualTo(1);
+        assertThat(stats.hitCount()).isEqualTo(9);
+    }
+
+    @Test
+    void test_calculate_price_after_loyalty_order__quote_invalidated() {
+        addUserLoyalty(user.getId());
+        var loyaltyQuote = new OrderDetails(user.getId(), regularBook.getId(), List.of(new BookItem(regularBook.getId(), 1)));
+        calculatePrice(loyaltyQuote);
+
+        createOrder(loyaltyQuote);
+
+        webTestClient.post().uri("/orders/calculate-price")
+            .bodyValue(loyaltyQuote)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(ErrorResponse.class)
+            .value(errorResponse -> assertThat(errorResponse.message()).isEqualTo("User has insufficient loyalty: 0"));
+    }
+
+    @Test
+    void test_calculate_price_updated_book__cache_invalidated() {
+        OrderDetails orderDetails = new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 1)));
+        calculatePrice(orderDetails);
+        BigDecimal newPrice = BigDecimal.valueOf(7500, 2);
+
+        webTestClient.patch().uri("/books/%s".formatted(regularBook.getId()))
+            .bodyValue(new BookUpdate(null, newPrice, null))
+            .exchange()
+            .expectStatus().isOk();
+
+        assertThat(calculatePrice(orderDetails).totalPrice()).isEqualTo(newPrice);
+    }
+
     private static final List<Arguments> invalidUserIdScenarios = List.of(
         arguments(null, "User id can not be null"),
         arguments(0L, "User id must be positive"),
@@ -280,6 +405,36 @@ public class OrderControllerTest {
             });
     }
 
+    @Test
+    void test_calculate_price_duplicate_books_over_max_quantity__bad_request_error() {
+        OrderDetails orderDetails = new OrderDetails(user.getId(), null, List.of(
+            new BookItem(regularBook.getId(), 10),
+            new BookItem(regularBook.getId(), 1)
+        ));
+
+        webTestClient.post().uri("/orders/calculate-price")
+            .bodyValue(orderDetails)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(ErrorResponse.class)
+            .value(errorResponse -> assertThat(errorResponse.message())
+                .isEqualTo("Quantity of book with id %d must not exceed 10 in total".formatted(regularBook.getId())));
+    }
+
+    @Test
+    void test_create_order_duplicate_books_over_max_quantity__nothing_written() {
+        webTestClient.post().uri("/orders")
+            .bodyValue(new OrderDetails(user.getId(), null, List.of(
+                new BookItem(oldEditionBook.getId(), 6),
+                new BookItem(oldEditionBook.getId(), 5)
+            )))
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        assertThat(getOrders()).isEmpty();
+        assertThat(getUser(user.getId()).getBalance()).isEqualTo(user.getBalance());
+    }
+
     @Test
     void test_calculate_price__book_not_found_error() {
         Long nonExistentBookId = 10L;
@@ -380,17 +535,52 @@ public class OrderControllerTest {
         assertThat(createdOrder.getTotalPrice()).isEqualTo(totalPrice);
         assertThat(createdOrder.getOrderItems())
             .hasSize(3)
-            .extracting("orderId", "bookId", "price")
+            .extracting("orderId", "bookId", "price", "quantity")
             .containsExactlyInAnyOrderElementsOf(
                 List.of(
-                    tuple(createdOrder.getId(), newReleaseBook.getId(), expectedNewReleasesPrice),
-                    tuple(createdOrder.getId(), oldEditionBook.getId(), expectedOldEditionPrice),
-                    tuple(createdOrder.getId(), regularBook.getId(), expectedRegularPrice)
+                    tuple(createdOrder.getId(), newReleaseBook.getId(), expectedNewReleasesPrice, 1),
+                    tuple(createdOrder.getId(), oldEditionBook.getId(), expectedOldEditionPrice, 1),
+                    tuple(createdOrder.getId(), regularBook.getId(), expectedRegularPrice, 1)
                 )
             );
         assertThat(orders.getFirst()).isEqualTo(createdOrder);
     }
 
+    @Test
+    void test_create_order_with_loyalty_copies__one_item_per_line() {
+        addUserLoyalty(user.getId());
+
+        OrderDetails orderDetails = new OrderDetails(
+            user.getId(),
+            regularBook.getId(),
+            List.of(
+                new BookItem(regularBook.getId(), 3),
+                new BookItem(oldEditionBook.getId(), 2)
+            )
+        );
+
+        BigDecimal expectedRegularPrice = getDiscountedPrice(regularBook, 0.9);
+        BigDecimal expectedOldEditionPrice = getDiscountedPrice(oldEditionBook, 0.75);
+        BigDecimal totalPrice = BigDecimal.ZERO
+            .add(expectedRegularPrice.multiply(BigDecimal.TWO))
+            .add(expectedOldEditionPrice.multiply(BigDecimal.TWO))
+            .setScale(2, RoundingMode.HALF_UP);
+
+        var createdOrder = createOrder(orderDetails);
+
+        assertThat(createdOrder.getTotalPrice()).isEqualTo(totalPrice);
+        assertThat(createdOrder.getOrderItems())
+            .hasSize(3)
+            .extracting("bookId", "price", "quantity")
+            .containsExactlyInAnyOrderElementsOf(
+                List.of(
+                    tuple(regularBook.getId(), BigDecimal.valueOf(0, 2), 1),
+                    tuple(regularBook.getId(), expectedRegularPrice, 2),
+                    tuple(oldEditionBook.getId(), expectedOldEditionPrice, 2)
+                )
+            );
+    }
+
     @Test
     void test_create_order_in_bundle__deduct_user_balance() {
         OrderDetails orderDetails = new OrderDetails(
@@ -426,6 +616,261 @@ public class OrderControllerTest {
         assertThat(updatedUser.getBalance()).isEqualTo(user.getBalance().subtract(totalPrice));
     }
 
+    @Test
+    void test_create_order_insufficient_balance__bad_request_error() {
+        OrderDetails orderDetails = new OrderDetails(
+            user.getId(),
+            null,
+            List.of(
+                new BookItem(newReleaseBook.getId(), 10),
+                new BookItem(regularBook.getId(), 1)
+            )
+        );
+
+        webTestClient.post().uri("/orders")
+            .bodyValue(orderDetails)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(ErrorResponse.class)
+            .value(errorResponse -> {
+                assertThat(errorResponse.message()).isEqualTo("User has insufficient balance");
+            });
+
+        var updatedUser = getUser(user.getId());
+        var orders = getOrders();
+
+        assertThat(orders).isEmpty();
+        assertThat(updatedUser.getBalance()).isEqualTo(user.getBalance());
+        assertThat(updatedUser.getLoyalty()).isEqualTo(0);
+    }
+
+    @Test
+    void test_create_orders_batch_ndjson__result_per_order() throws JsonProcessingException {
+        var validOrder = new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 1)));
+        var invalidOrder = new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 0)));
+        var missingBookOrder = new OrderDetails(user.getId(), null, List.of(new BookItem(100L, 1)));
+        var secondValidOrder = new OrderDetails(user.getId(), null, List.of(new BookItem(newReleaseBook.getId(), 2)));
+
+        var body = new StringBuilder();
+        for (var orderDetails : List.of(validOrder, invalidOrder, missingBookOrder, secondValidOrder)) {
+            body.append(objectMapper.writeValueAsString(orderDetails)).append('\n');
+        }
+
+        var results = createOrdersBatch(MediaType.APPLICATION_NDJSON, body.toString());
+
+        assertThat(results).extracting(OrderBatchResult::index).containsExactly(0L, 1L, 2L, 3L);
+        assertThat(results.get(0).order().getTotalPrice()).isEqualTo(regularBook.getPrice());
+        assertThat(results.get(0).error()).isNull();
+        assertThat(results.get(1).order()).isNull();
+        assertThat(results.get(1).error().errors())
+            .containsExactly(new FieldError("items[0].quantity", "Quantity must be positive"));
+        assertThat(results.get(2).order()).isNull();
+        assertThat(results.get(2).error().message()).isEqualTo("Book with ids [100] is not found");
+        assertThat(results.get(3).order().getTotalPrice())
+            .isEqualTo(newReleaseBook.getPrice().multiply(BigDecimal.valueOf(2)));
+
+        assertThat(getOrders()).hasSize(2);
+        assertThat(getUser(user.getId()).getBalance()).isEqualTo(user.getBalance()
+            .subtract(regularBook.getPrice())
+            .subtract(newReleaseBook.getPrice().multiply(BigDecimal.valueOf(2))));
+    }
+
+    @Test
+    void test_create_orders_batch_json_array__failed_order_does_not_roll_back_others() throws JsonProcessingException {
+        var validOrder = new OrderDetails(user.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1)));
+        var unaffordableOrder = new OrderDetails(user.getId(), null, List.of(new BookItem(newReleaseBook.getId(), 10),
+            new BookItem(regularBook.getId(), 10)));
+
+        var results = createOrdersBatch(MediaType.APPLICATION_JSON,
+            objectMapper.writeValueAsString(List.of(validOrder, unaffordableOrder)));
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).order()).isNotNull();
+        assertThat(results.get(1).error().message()).isEqualTo("User has insufficient balance");
+        assertThat(getOrders()).hasSize(1);
+        assertThat(getUser(user.getId()).getBalance())
+            .isEqualTo(user.getBalance().subtract(getDiscountedPrice(oldEditionBook, 0.8)));
+    }
+
+    @Test
+    void test_create_order_replayed_idempotency_key__same_order_single_debit() {
+        var orderDetails = new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 1)));
+
+        var createdOrder = createOrder("order-1", orderDetails);
+        var replayedOrder = createOrder("order-1", orderDetails);
+
+        // A replay after the hot cache is gone is answered from the idempotency_keys table
+        idempotentOrderService.invalidateAll();
+        var replayedFromDatabase = createOrder("order-1", orderDetails);
+
+        assertThat(replayedOrder).isEqualTo(createdOrder);
+        assertThat(replayedFromDatabase).isEqualTo(createdOrder);
+        assertThat(getOrders()).extracting(Order::getId).containsExactly(createdOrder.getId());
+        assertThat(getUser(user.getId()).getBalance()).isEqualTo(user.getBalance().subtract(regularBook.getPrice()));
+    }
+
+    @Test
+    void test_create_order_concurrent_idempotency_key__coalesced_into_one_order() {
+        var orderDetails = new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 1)));
+
+        var orders = Flux.range(0, 10)
+            .flatMap(ignored -> Mono.fromCallable(() -> createOrder("order-1", orderDetails))
+                .subscribeOn(Schedulers.boundedElastic()))
+            .collectList()
+            .block();
+
+        assertThat(orders).extracting(Order::getId).containsOnly(orders.getFirst().getId());
+        assertThat(getOrders()).hasSize(1);
+        assertThat(getUser(user.getId()).getBalance()).isEqualTo(user.getBalance().subtract(regularBook.getPrice()));
+    }
+
+    @Test
+    void test_create_order_idempotency_key_of_other_user__bad_request_error() {
+        var otherUser = createUser(new UserData("Other", BigDecimal.valueOf(1000, 2)));
+        createOrder("order-1", new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 1))));
+
+        webTestClient.post().uri("/orders")
+            .header(IdempotentOrderService.IDEMPOTENCY_KEY_HEADER, "order-1")
+            .bodyValue(new OrderDetails(otherUser.getId(), null, List.of(new BookItem(regularBook.getId(), 1))))
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(ErrorResponse.class)
+            .value(errorResponse -> assertThat(errorResponse.message())
+                .isEqualTo("Idempotency key order-1 was already used by another user"));
+
+        assertThat(getUser(otherUser.getId()).getBalance()).isEqualTo(otherUser.getBalance());
+    }
+
+    @Test
+    void test_create_order_idempotency_key_with_other_items__bad_request_error() {
+        var createdOrder = createOrder("order-1", new OrderDetails(user.getId(), null,
+            List.of(new BookItem(regularBook.getId(), 1), new BookItem(oldEditionBook.getId(), 1))));
+        var otherItems = new OrderDetails(user.getId(), null, List.of(new BookItem(newReleaseBook.getId(), 1)));
+
+        expectIdempotencyKeyReusedForOtherOrder(otherItems);
+        // The stored request hash rejects the mismatch after the hot cache is gone as well
+        idempotentOrderService.invalidateAll();
+        expectIdempotencyKeyReusedForOtherOrder(otherItems);
+
+        // The same order with its items listed differently is still a replay
+        var replayedOrder = createOrder("order-1", new OrderDetails(user.getId(), null,
+            List.of(new BookItem(oldEditionBook.getId(), 1), new BookItem(regularBook.getId(), 1))));
+
+        assertThat(replayedOrder).isEqualTo(createdOrder);
+        assertThat(getOrders()).extracting(Order::getId).containsExactly(createdOrder.getId());
+    }
+
+    @Test
+    void test_create_order_failed_with_idempotency_key__key_not_consumed() {
+        var unaffordableOrder = new OrderDetails(user.getId(), null, List.of(new BookItem(newReleaseBook.getId(), 10),
+            new BookItem(regularBook.getId(), 10)));
+
+        webTestClient.post().uri("/orders")
+            .header(IdempotentOrderService.IDEMPOTENCY_KEY_HEADER, "order-1")
+            .bodyValue(unaffordableOrder)
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        var order = createOrder("order-1", new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 1))));
+
+        assertThat(order.getTotalPrice()).isEqualTo(regularBook.getPrice());
+    }
+
+    @Test
+    void test_create_order_expired_idempotency_key__new_order_created() {
+        var orderDetails = new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 1)));
+        var createdOrder = createOrder("order-1", orderDetails);
+        createOrder("order-2", orderDetails);
+        postgresTemplate.getDatabaseClient()
+            .sql("UPDATE idempotency_keys SET created_at = created_at - INTERVAL '2 days' WHERE idempotency_key = 'order-1'")
+            .fetch()
+            .rowsUpdated()
+            .block();
+
+        assertThat(idempotencyKeyCleanup.deleteExpired().block()).isEqualTo(1L);
+        idempotentOrderService.invalidateAll();
+        var newOrder = createOrder("order-1", orderDetails);
+
+        assertThat(newOrder.getId()).isNotEqualTo(createdOrder.getId());
+        assertThat(getOrders()).hasSize(3);
+    }
+
+    @Test
+    void test_create_order_concurrent_same_user__all_checkouts_applied() {
+        var orderDetails = new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 1)));
+        var queueWaitsBefore = meterRegistry.get(CheckoutLanes.QUEUE_WAIT_TIMER).timer().count();
+
+        var orders = Flux.range(0, 5)
+            .flatMap(ignored -> Mono.fromCallable(() -> createOrder(orderDetails))
+                .subscribeOn(Schedulers.boundedElastic()))
+            .collectList()
+            .block();
+
+        assertThat(orders).hasSize(5);
+        assertThat(getOrders()).hasSize(5);
+        assertThat(getUser(user.getId()).getBalance())
+            .isEqualTo(user.getBalance().subtract(regularBook.getPrice().multiply(BigDecimal.valueOf(5))));
+        assertThat(getUser(user.getId()).getLoyalty()).isEqualTo(5);
+        assertThat(meterRegistry.get(CheckoutLanes.QUEUE_WAIT_TIMER).timer().count() - queueWaitsBefore).isEqualTo(5);
+    }
+
+    @Test
+    void test_concurrent_top_ups_and_orders__exact_final_balance() {
+        var orderDetails = new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 1)));
+        var topUp = new AddBalance(BigDecimal.valueOf(100, 2));
+
+        Flux.range(0, 20)
+            .flatMap(request -> Mono.fromRunnable(() -> {
+                    if (request % 2 == 0) {
+                        createOrder(orderDetails);
+                    } else {
+                        webTestClient.patch().uri("/users/%s/balance/add".formatted(user.getId()))
+                            .bodyValue(topUp)
+                            .exchange()
+                            .expectStatus().isOk();
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic()))
+            .blockLast();
+
+        var updatedUser = getUser(user.getId());
+        assertThat(updatedUser.getBalance()).isEqualTo(user.getBalance()
+            .add(topUp.amount().multiply(BigDecimal.TEN))
+            .subtract(regularBook.getPrice().multiply(BigDecimal.TEN)));
+        assertThat(updatedUser.getLoyalty()).isEqualTo(10);
+        assertThat(updatedUser.getVersion()).isEqualTo(user.getVersion() + 20);
+    }
+
+    @Test
+    void test_create_order__stage_metrics_recorded() {
+        var stages = List.of("validate-user-loyalty", "load-books", "calculate-book-prices",
+            "process-user-balance-and-loyalty", "save-order-with-items");
+        var stageCountsBefore = stages.stream().map(stage -> stageCount(stage, "success")).toList();
+        var checkoutsBefore = checkoutCount("success");
+
+        createOrder(new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 1))));
+
+        assertThat(stages.stream().map(stage -> stageCount(stage, "success")).toList())
+            .isEqualTo(stageCountsBefore.stream().map(count -> count + 1).toList());
+        assertThat(checkoutCount("success")).isEqualTo(checkoutsBefore + 1);
+        assertThat(meterRegistry.find("r2dbc.pool.acquired").gauge()).isNotNull();
+        assertThat(meterRegistry.find("cache.gets").tag("cache", "book-catalogue").functionCounter()).isNotNull();
+    }
+
+    @Test
+    void test_create_order_insufficient_balance__failure_metrics_recorded() {
+        var checkoutsBefore = checkoutCount("InsufficientBalanceException");
+
+        webTestClient.post().uri("/orders")
+            .bodyValue(new OrderDetails(user.getId(), null, List.of(new BookItem(newReleaseBook.getId(), 10),
+                new BookItem(regularBook.getId(), 1))))
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        assertThat(checkoutCount("InsufficientBalanceException")).isEqualTo(checkoutsBefore + 1);
+        assertThat(stageCount("process-user-balance-and-loyalty", "InsufficientBalanceException")).isPositive();
+    }
+
     @Test
     void test_create_order_with_loyalty__reset_loyalty() {
         OrderDetails orderDetails = new OrderDetails(
@@ -533,6 +978,26 @@ public class OrderControllerTest {
         assertThat(updatedUser.getLoyalty()).isEqualTo(10);
     }
 
+    @Test
+    void test_place_order_concurrent_loyalty_redemptions__redeemed_once() {
+        addUserLoyalty(user.getId());
+        // Both orders passed the loyalty check while being priced; only the debit sees the other one
+        var orderPriceInfo = new OrderPriceInfo(user.getId(), BigDecimal.ZERO.setScale(2),
+            List.of(new BookPriceItem(regularBook.getId(), BigDecimal.ZERO.setScale(2), 1, 1)));
+
+        var outcomes = Flux.range(0, 2)
+            .flatMap(ignored -> checkoutStore.placeOrder(orderPriceInfo, true, 0)
+                .map(order -> (Object) order)
+                .onErrorResume(LoyaltyNotAcceptableException.class, Mono::just))
+            .collectList()
+            .block();
+
+        assertThat(outcomes).filteredOn(Order.class::isInstance).hasSize(1);
+        assertThat(outcomes).filteredOn(LoyaltyNotAcceptableException.class::isInstance).hasSize(1);
+        assertThat(getOrders()).hasSize(1);
+        assertThat(getUser(user.getId()).getLoyalty()).isZero();
+    }
+
     @Test
     void test_create_order_with_insufficient_loyalty__bad_request_error() {
         OrderDetails orderDetails = new OrderDetails(
@@ -586,9 +1051,11 @@ public class OrderControllerTest {
         webTestClient.get().uri("/orders")
             .exchange()
             .expectStatus().isOk()
-            .expectBodyList(Order.class)
-            .hasSize(1)
-            .value(orders -> {
+            .expectBody(ORDER_PAGE)
+            .value(page -> {
+                var orders = page.items();
+                assertThat(page.nextCursor()).isNull();
+                assertThat(orders).hasSize(1);
                 assertThat(orders.getFirst().getUserId()).isEqualTo(user.getId());
                 assertThat(orders.getFirst().getTotalPrice()).isEqualTo(totalPrice);
                 assertThat(orders.getFirst().getOrderItems())
@@ -604,6 +1071,268 @@ public class OrderControllerTest {
             });
     }
 
+    @Test
+    void test_get_orders_multiple__items_grouped_per_order() {
+        var firstOrder = createOrder(new OrderDetails(
+            user.getId(),
+            null,
+            List.of(
+                new BookItem(newReleaseBook.getId(), 1),
+                new BookItem(regularBook.getId(), 1)
+            )
+        ));
+        var secondOrder = createOrder(new OrderDetails(
+            user.getId(),
+            null,
+            List.of(new BookItem(oldEditionBook.getId(), 2))
+        ));
+
+        var orders = getOrders();
+
+        assertThat(orders)
+            .extracting(Order::getId)
+            .containsExactly(firstOrder.getId(), secondOrder.getId());
+        assertThat(orders.getFirst().getOrderItems())
+            .extracting("orderId", "bookId")
+            .containsExactlyInAnyOrder(
+                tuple(firstOrder.getId(), newReleaseBook.getId()),
+                tuple(firstOrder.getId(), regularBook.getId())
+            );
+        assertThat(orders.getLast().getOrderItems())
+            .extracting("orderId", "bookId", "quantity")
+            .containsExactly(tuple(secondOrder.getId(), oldEditionBook.getId(), 2));
+    }
+
+    private static final List<MediaType> streamingMediaTypes = List.of(MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM);
+
+    @ParameterizedTest
+    @FieldSource("streamingMediaTypes")
+    void test_stream_orders__items_grouped_per_order(MediaType mediaType) {
+        var firstOrder = createOrder(new OrderDetails(
+            user.getId(),
+            null,
+            List.of(
+                new BookItem(newReleaseBook.getId(), 1),
+                new BookItem(regularBook.getId(), 1)
+            )
+        ));
+        var secondOrder = createOrder(new OrderDetails(
+            user.getId(),
+            null,
+            List.of(new BookItem(oldEditionBook.getId(), 2))
+        ));
+
+        var orders = webTestClient.get().uri("/orders?userId=" + user.getId())
+            .accept(mediaType)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(mediaType)
+            .returnResult(Order.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertThat(orders)
+            .extracting(Order::getId)
+            .containsExactly(firstOrder.getId(), secondOrder.getId());
+        assertThat(orders.getFirst().getOrderItems())
+            .extracting("orderId", "bookId")
+            .containsExactlyInAnyOrder(
+                tuple(firstOrder.getId(), newReleaseBook.getId()),
+                tuple(firstOrder.getId(), regularBook.getId())
+            );
+        assertThat(orders.getLast().getOrderItems())
+            .extracting("orderId", "bookId", "quantity")
+            .containsExactly(tuple(secondOrder.getId(), oldEditionBook.getId(), 2));
+    }
+
+    @Test
+    void test_get_orders_paginated__next_cursor() {
+        var orderDetails = new OrderDetails(user.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1)));
+        var firstOrder = createOrder(orderDetails);
+        var secondOrder = createOrder(orderDetails);
+        var thirdOrder = createOrder(orderDetails);
+
+        var firstPage = getOrdersPage("/orders?limit=2");
+
+        assertThat(firstPage.items()).extracting(Order::getId).containsExactly(firstOrder.getId(), secondOrder.getId());
+        assertThat(firstPage.nextCursor()).isEqualTo(secondOrder.getId());
+
+        var secondPage = getOrdersPage("/orders?limit=2&after=%d".formatted(firstPage.nextCursor()));
+
+        assertThat(secondPage.items()).extracting(Order::getId).containsExactly(thirdOrder.getId());
+        assertThat(secondPage.items().getFirst().getOrderItems()).hasSize(1);
+        assertThat(secondPage.nextCursor()).isNull();
+    }
+
+    @Test
+    void test_get_orders_filtered__user_and_date_range() {
+        var otherUser = createUser(new UserData("Other", BigDecimal.valueOf(1000, 2)));
+        var userOrder = createOrder(new OrderDetails(user.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1))));
+        createOrder(new OrderDetails(otherUser.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1))));
+
+        var userOrders = getOrdersPage("/orders?userId=%d".formatted(user.getId()));
+
+        assertThat(userOrders.items()).extracting(Order::getId).containsExactly(userOrder.getId());
+
+        var from = userOrder.getCreatedAt().minusSeconds(1);
+        var to = from.plusSeconds(3600);
+        var ordersInRange = getOrdersPage("/orders?userId=%d&from=%s&to=%s".formatted(user.getId(), from, to));
+        var ordersAfterRange = getOrdersPage("/orders?userId=%d&from=%s".formatted(user.getId(), to));
+
+        assertThat(ordersInRange.items()).extracting(Order::getId).containsExactly(userOrder.getId());
+        assertThat(ordersAfterRange.items()).isEmpty();
+    }
+
+    @Test
+    void test_get_user_summary__updated_by_each_order() {
+        assertThat(getUserSummary(user.getId()))
+            .extracting(UserOrderStats::getOrderCount, UserOrderStats::getTotalSpent, UserOrderStats::getLastOrderAt)
+            .containsExactly(0L, BigDecimal.valueOf(0, 2), null);
+
+        var firstOrder = createOrder(new OrderDetails(user.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1))));
+        var secondOrder = createOrder(new OrderDetails(user.getId(), null, List.of(new BookItem(regularBook.getId(), 2))));
+
+        var summary = getUserSummary(user.getId());
+
+        assertThat(summary.getUserId()).isEqualTo(user.getId());
+        assertThat(summary.getOrderCount()).isEqualTo(2);
+        assertThat(summary.getTotalSpent()).isEqualTo(firstOrder.getTotalPrice().add(secondOrder.getTotalPrice()));
+        assertThat(summary.getLastOrderAt()).isCloseTo(secondOrder.getCreatedAt(), within(1, ChronoUnit.MILLIS));
+    }
+
+    @Test
+    void test_get_user_summary_failed_order__not_counted() {
+        var poorUser = createUser(new UserData("Poor", BigDecimal.valueOf(1, 2)));
+
+        webTestClient.post().uri("/orders")
+            .bodyValue(new OrderDetails(poorUser.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1))))
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        assertThat(getUserSummary(poorUser.getId()).getOrderCount()).isZero();
+    }
+
+    @Test
+    void test_get_user_orders_paginated__only_own_orders() {
+        var otherUser = createUser(new UserData("Other", BigDecimal.valueOf(1000, 2)));
+        var orderDetails = new OrderDetails(user.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1)));
+        var firstOrder = createOrder(orderDetails);
+        createOrder(new OrderDetails(otherUser.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1))));
+        var secondOrder = createOrder(orderDetails);
+        var thirdOrder = createOrder(orderDetails);
+
+        var firstPage = getOrdersPage("/users/%d/orders?limit=2".formatted(user.getId()));
+
+        assertThat(firstPage.items()).extracting(Order::getId).containsExactly(firstOrder.getId(), secondOrder.getId());
+        assertThat(firstPage.nextCursor()).isEqualTo(secondOrder.getId());
+
+        var secondPage = getOrdersPage("/users/%d/orders?limit=2&after=%d".formatted(user.getId(), firstPage.nextCursor()));
+
+        assertThat(secondPage.items()).extracting(Order::getId).containsExactly(thirdOrder.getId());
+        assertThat(secondPage.nextCursor()).isNull();
+    }
+
+    @Test
+    void test_get_user_orders_and_summary__user_not_found() {
+        for (var uri : List.of("/users/999/orders", "/users/999/summary")) {
+            webTestClient.get().uri(uri)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(ErrorResponse.class)
+                .value(errorResponse -> assertThat(errorResponse.message()).isEqualTo("User with id 999 is not found"));
+        }
+    }
+
+    @Test
+    void test_create_order__event_relayed_from_outbox() throws JsonProcessingException {
+        var order = createOrder(new OrderDetails(user.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1))));
+
+        // The background relay is disabled, so this run publishes the event while the subscriber is connected
+        var relayedEvents = new ArrayList<OrderEvent>();
+        var subscription = orderEventSink.events().subscribe(relayedEvents::add);
+        try {
+            assertThat(orderEventRelay.relayAll().block()).isEqualTo(1L);
+        } finally {
+            subscription.dispose();
+        }
+
+        assertThat(relayedEvents).singleElement().satisfies(event -> {
+            assertThat(event.getOrderId()).isEqualTo(order.getId());
+            assertThat(event.getEventType()).isEqualTo(OrderEvent.ORDER_CREATED);
+            assertThat(objectMapper.readValue(event.getPayload(), Order.class)).isEqualTo(order);
+        });
+
+        var unpublished = postgresTemplate.getDatabaseClient()
+            .sql("SELECT COUNT(*) FROM order_events WHERE published_at IS NULL")
+            .map(row -> row.get(0, Long.class))
+            .one()
+            .block();
+        assertThat(unpublished).isZero();
+        assertThat(meterRegistry.get(OrderEventRelay.LAG_GAUGE).gauge().value()).isNotNegative();
+    }
+
+    @Test
+    void test_delete_published_events__only_expired_events_deleted() {
+        var expiredOrder = createOrder(new OrderDetails(user.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1))));
+        createOrder(new OrderDetails(user.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1))));
+        orderEventRelay.relayAll().block();
+        createOrder(new OrderDetails(user.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1))));
+        postgresTemplate.getDatabaseClient()
+            .sql("UPDATE order_events SET published_at = published_at - INTERVAL '8 days' WHERE order_id = %d"
+                .formatted(expiredOrder.getId()))
+            .fetch()
+            .rowsUpdated()
+            .block();
+
+        assertThat(orderEventRelay.deletePublished().block()).isEqualTo(1L);
+
+        var remainingEvents = postgresTemplate.getDatabaseClient()
+            .sql("SELECT order_id FROM order_events")
+            .map(row -> row.get(0, Long.class))
+            .all()
+            .collectList()
+            .block();
+        assertThat(remainingEvents).hasSize(2).doesNotContain(expiredOrder.getId());
+    }
+
+    @Test
+    void test_create_order_failed__no_event_recorded() {
+        var poorUser = createUser(new UserData("Poor", BigDecimal.valueOf(1, 2)));
+
+        webTestClient.post().uri("/orders")
+            .bodyValue(new OrderDetails(poorUser.getId(), null, List.of(new BookItem(oldEditionBook.getId(), 1))))
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        var events = postgresTemplate.getDatabaseClient()
+            .sql("SELECT COUNT(*) FROM order_events")
+            .map(row -> row.get(0, Long.class))
+            .one()
+            .block();
+        assertThat(events).isZero();
+    }
+
+    private static final List<Arguments> invalidPageScenarios = List.of(
+        arguments("/orders?limit=0", "limit", "Limit must be positive"),
+        arguments("/orders?limit=101", "limit", "Limit must not exceed 100"),
+        arguments("/orders?after=-1", "after", "After cursor must be positive"),
+        arguments("/orders?userId=0", "userId", "User id must be positive")
+    );
+
+    @ParameterizedTest
+    @FieldSource("invalidPageScenarios")
+    void test_get_orders_invalid_page__validation_errors(String uri, String field, String error) {
+        webTestClient.get().uri(uri)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(ErrorResponse.class)
+            .value(errorResponse -> {
+                assertThat(errorResponse.message()).isEqualTo("Validation failed for one or more fields");
+                assertThat(errorResponse.errors()).contains(new FieldError(field, error));
+            });
+    }
+
     private BigDecimal getDiscountedPrice(Book book, double discount) {
         return book.getPrice().multiply(BigDecimal.valueOf(discount)).setScale(2, HALF_UP);
     }
@@ -627,11 +1356,78 @@ public class OrderControllerTest {
             .getResponseBody();
     }
 
+    private long stageCount(String stage, String outcome) {
+        var timer = meterRegistry.find(OrderMetrics.STAGE_TIMER).tags("stage", stage, "outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private double checkoutCount(String outcome) {
+        var counter = meterRegistry.find(OrderMetrics.CHECKOUT_COUNTER).tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private OrderPriceInfo calculatePrice(OrderDetails orderDetails) {
+        return webTestClient.post().uri("/orders/calculate-price")
+            .bodyValue(orderDetails)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(OrderPriceInfo.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private Order createOrder(String idempotencyKey, OrderDetails orderDetails) {
+        return webTestClient.post().uri("/orders")
+            .header(IdempotentOrderService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+            .bodyValue(orderDetails)
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(Order.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private void expectIdempotencyKeyReusedForOtherOrder(OrderDetails orderDetails) {
+        webTestClient.post().uri("/orders")
+            .header(IdempotentOrderService.IDEMPOTENCY_KEY_HEADER, "order-1")
+            .bodyValue(orderDetails)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(ErrorResponse.class)
+            .value(errorResponse -> assertThat(errorResponse.message())
+                .isEqualTo("Idempotency key order-1 was already used by a different order"));
+    }
+
+    private List<OrderBatchResult> createOrdersBatch(MediaType contentType, String body) {
+        return webTestClient.post().uri("/orders/batch")
+            .contentType(contentType)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(body)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(OrderBatchResult.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
     private List<Order> getOrders() {
-        return webTestClient.get().uri("/orders")
+        return getOrdersPage("/orders").items();
+    }
+
+    private CursorPage<Order> getOrdersPage(String uri) {
+        return webTestClient.get().uri(uri)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(ORDER_PAGE)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private UserOrderStats getUserSummary(Long userId) {
+        return webTestClient.get().uri("/users/%d/summary".formatted(userId))
             .exchange()
             .expectStatus().isOk()
-            .expectBodyList(Order.class)
+            .expectBody(UserOrderStats.class)
             .returnResult()
             .getResponseBody();
     }
@@ -1,10 +1,14 @@
 package com.sporty.bookstore.controllers;
 
 import com.sporty.bookstore.dtos.AddBalance;
+import com.sporty.bookstore.dtos.BalanceCredit;
+import com.sporty.bookstore.dtos.BalanceCreditSummary;
+import com.sporty.bookstore.dtos.CursorPage;
 import com.sporty.bookstore.dtos.UserData;
 import com.sporty.bookstore.entities.User;
 import com.sporty.bookstore.exceptions.ErrorResponse;
 import com.sporty.bookstore.exceptions.FieldError;
+import com.sporty.bookstore.repositories.UserRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -13,12 +17,15 @@ import org.junit.jupiter.params.provider.FieldSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -42,8 +49,14 @@ class UserControllerTest {
     @Autowired
     private R2dbcEntityTemplate postgresTemplate;
 
+    @Autowired
+    private UserRepository userRepository;
+
     private static final UserData TEST_USER = new UserData("Test", BigDecimal.valueOf(1000, 2));
 
+    private static final ParameterizedTypeReference<CursorPage<User>> USER_PAGE = new ParameterizedTypeReference<>() {
+    };
+
     @AfterEach
     void cleanUpDatabase() {
         postgresTemplate.getDatabaseClient()
@@ -168,6 +181,69 @@ class UserControllerTest {
             });
     }
 
+    @Test
+    void test_save_stale_user__optimistic_locking_failure() {
+        User createdUser = this.createUser(TEST_USER);
+        User staleUser = userRepository.findById(createdUser.getId()).block();
+
+        webTestClient.patch().uri("/users/%s/balance/add".formatted(createdUser.getId()))
+            .bodyValue(new AddBalance(BigDecimal.ONE))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(User.class)
+            .value(user -> assertThat(user.getVersion()).isEqualTo(createdUser.getVersion() + 1));
+
+        staleUser.setBalance(BigDecimal.ZERO);
+        StepVerifier.create(userRepository.save(staleUser))
+            .expectError(OptimisticLockingFailureException.class)
+            .verify();
+    }
+
+    @Test
+    void test_add_balances__credits_applied_in_one_statement() {
+        User firstUser = this.createUser(TEST_USER);
+        User secondUser = this.createUser(TEST_USER);
+        User untouchedUser = this.createUser(TEST_USER);
+        Long nonExistentId = 100L;
+
+        var credits = List.of(
+            new BalanceCredit(firstUser.getId(), BigDecimal.valueOf(150, 2)),
+            new BalanceCredit(secondUser.getId(), BigDecimal.valueOf(1000, 2)),
+            new BalanceCredit(firstUser.getId(), BigDecimal.valueOf(250, 2)),
+            new BalanceCredit(nonExistentId, BigDecimal.ONE)
+        );
+
+        webTestClient.patch().uri("/users/balance/add")
+            .bodyValue(credits)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(BalanceCreditSummary.class)
+            .value(summary -> {
+                assertThat(summary.creditedUsers()).isEqualTo(2);
+                assertThat(summary.notFoundIds()).containsExactly(nonExistentId);
+            });
+
+        assertThat(getUser(firstUser.getId()).getBalance()).isEqualTo(BigDecimal.valueOf(1400, 2));
+        assertThat(getUser(firstUser.getId()).getVersion()).isEqualTo(firstUser.getVersion() + 1);
+        assertThat(getUser(secondUser.getId()).getBalance()).isEqualTo(BigDecimal.valueOf(2000, 2));
+        assertThat(getUser(untouchedUser.getId())).isEqualTo(untouchedUser);
+    }
+
+    @Test
+    void test_add_balances_invalid_amount__validation_errors() {
+        User createdUser = this.createUser(TEST_USER);
+
+        webTestClient.patch().uri("/users/balance/add")
+            .bodyValue(List.of(new BalanceCredit(createdUser.getId(), BigDecimal.valueOf(1001))))
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(ErrorResponse.class)
+            .value(errorResponse -> assertThat(errorResponse.errors())
+                .containsExactly(new FieldError("amount", "Amount must not exceed 1000")));
+
+        assertThat(getUser(createdUser.getId()).getBalance()).isEqualTo(createdUser.getBalance());
+    }
+
     @Test
     void test_add_balance__user_not_found() {
         Long nonExistentId = 10L;
@@ -214,9 +290,11 @@ class UserControllerTest {
         webTestClient.get().uri("/users")
             .exchange()
             .expectStatus().isOk()
-            .expectBodyList(User.class)
-            .hasSize(1)
-            .value(users -> assertThat(users.getFirst()).isEqualTo(createdUser));
+            .expectBody(USER_PAGE)
+            .value(page -> {
+                assertThat(page.items()).containsExactly(createdUser);
+                assertThat(page.nextCursor()).isNull();
+            });
     }
 
     @Test
@@ -224,8 +302,32 @@ class UserControllerTest {
         webTestClient.get().uri("/users")
             .exchange()
             .expectStatus().isOk()
-            .expectBodyList(User.class)
-            .hasSize(0);
+            .expectBody(USER_PAGE)
+            .value(page -> assertThat(page.items()).isEmpty());
+    }
+
+    @Test
+    void test_get_users_paginated__next_cursor() {
+        User firstUser = this.createUser(TEST_USER);
+        User secondUser = this.createUser(TEST_USER);
+
+        webTestClient.get().uri("/users?limit=1")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(USER_PAGE)
+            .value(page -> {
+                assertThat(page.items()).containsExactly(firstUser);
+                assertThat(page.nextCursor()).isEqualTo(firstUser.getId());
+            });
+
+        webTestClient.get().uri("/users?limit=1&after=%d".formatted(firstUser.getId()))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(USER_PAGE)
+            .value(page -> {
+                assertThat(page.items()).containsExactly(secondUser);
+                assertThat(page.nextCursor()).isNull();
+            });
     }
 
     @Test
@@ -265,4 +367,13 @@ class UserControllerTest {
             .returnResult()
             .getResponseBody();
     }
-}
\ No newline at end of file
+
+    private User getUser(Long id) {
+        return webTestClient.get().uri("/users/%s".formatted(id))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(User.class)
+            .returnResult()
+            .getResponseBody();
+    }
+}
@@ -0,0 +1,133 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.entities.Order;
+import com.sporty.bookstore.entities.OrderItem;
+import com.sporty.bookstore.entities.User;
+import com.sporty.bookstore.models.BookType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@Testcontainers
+@SpringBootTest
+class OrderItemRepositoryTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17.4-alpine")
+        .withCommand("postgres", "-c", "fsync=off", "-c", "shared_preload_libraries=pg_stat_statements");
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private R2dbcEntityTemplate postgresTemplate;
+
+    private Order order;
+    private List<Book> books;
+
+    @BeforeEach
+    void beforeEach() {
+        execute("CREATE EXTENSION IF NOT EXISTS pg_stat_statements");
+
+        var user = new User();
+        user.setName("Test");
+        user.setBalance(BigDecimal.valueOf(1000, 2));
+        user.setLoyalty(0);
+        user = postgresTemplate.insert(user).block();
+
+        order = postgresTemplate.insert(new Order(user.getId(), BigDecimal.valueOf(300, 2))).block();
+        books = IntStream.range(0, 3)
+            .mapToObj(i -> {
+                var book = new Book();
+                book.setTitle("Book " + i);
+                book.setPrice(BigDecimal.valueOf(100, 2));
+                book.setType(BookType.REGULAR);
+                return postgresTemplate.insert(book).block();
+            })
+            .toList();
+    }
+
+    @AfterEach
+    void cleanUpDatabase() {
+        execute("TRUNCATE TABLE books, users RESTART IDENTITY CASCADE");
+    }
+
+    @Test
+    void test_insert_all__single_round_trip() {
+        var orderItems = books.stream()
+            .map(book -> new OrderItem(order.getId(), book.getId(), book.getPrice(), 2))
+            .toList();
+
+        execute("SELECT pg_stat_statements_reset()");
+
+        var savedItems = orderItemRepository.insertAll(orderItems).collectList().block();
+
+        assertThat(savedItems)
+            .hasSize(3)
+            .allSatisfy(item -> {
+                assertThat(item.getId()).isPositive();
+                assertThat(item.getCreatedAt()).isNotNull();
+            })
+            .extracting("orderId", "bookId", "quantity")
+            .containsExactlyElementsOf(books.stream()
+                .map(book -> tuple(order.getId(), book.getId(), 2))
+                .toList());
+        assertThat(insertStatementCalls()).isEqualTo(1L);
+        assertThat(orderItemRepository.findAllByOrderId(order.getId()).collectList().block()).hasSize(3);
+    }
+
+    @Test
+    void test_insert_all_different_sizes__same_statement() {
+        execute("SELECT pg_stat_statements_reset()");
+
+        for (int size = 1; size <= books.size(); size++) {
+            var orderItems = books.subList(0, size).stream()
+                .map(book -> new OrderItem(order.getId(), book.getId(), book.getPrice(), 1))
+                .toList();
+            assertThat(orderItemRepository.insertAll(orderItems).collectList().block()).hasSize(size);
+        }
+
+        assertThat(insertStatements()).isEqualTo(1L);
+        assertThat(insertStatementCalls()).isEqualTo(3L);
+    }
+
+    private Long insertStatements() {
+        return postgresTemplate.getDatabaseClient()
+            .sql("SELECT COUNT(*) AS statements FROM pg_stat_statements WHERE query LIKE 'INSERT INTO order_items%'")
+            .map(row -> row.get("statements", Long.class))
+            .one()
+            .block();
+    }
+
+    private Long insertStatementCalls() {
+        return postgresTemplate.getDatabaseClient()
+            .sql("SELECT COALESCE(SUM(calls), 0)::BIGINT AS calls FROM pg_stat_statements WHERE query LIKE 'INSERT INTO order_items%'")
+            .map(row -> row.get("calls", Long.class))
+            .one()
+            .block();
+    }
+
+    private void execute(String sql) {
+        postgresTemplate.getDatabaseClient()
+            .sql(sql)
+            .fetch()
+            .rowsUpdated()
+            .block();
+    }
+}
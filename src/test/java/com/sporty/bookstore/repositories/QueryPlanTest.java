@@ -0,0 +1,160 @@
+package com.sporty.bookstore.repositories;
+
+import com.sporty.bookstore.models.BookType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.FieldSource;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Named.named;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Guards the indexes behind the repository read paths: the statements a repository call below sends must be
+ * planned on the index meant for that path and must not fall back to a sequential scan once the tables are large.
+ * Background jobs are off so that only the call's statements are recorded.
+ */
+@Testcontainers
+@SpringBootTest(properties = {"bookstore.outbox.relay-enabled=false", "bookstore.book-changes.enabled=false"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17.4-alpine")
+        .withCommand("postgres", "-c", "shared_preload_libraries=pg_stat_statements");
+
+    @Autowired
+    private R2dbcEntityTemplate postgresTemplate;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @BeforeAll
+    void seedLargeTables() {
+        execute("CREATE EXTENSION IF NOT EXISTS pg_stat_statements");
+        execute("INSERT INTO users (name, balance) SELECT 'user' || i, 100 FROM generate_series(1, 10000) i");
+        execute("INSERT INTO books (title, price, type) SELECT 'book' || i, 10, 'REGULAR' FROM generate_series(1, 50000) i");
+        execute("""
+            INSERT INTO orders (user_id, total_price, created_at)
+            SELECT 1 + i % 10000, 10, CURRENT_TIMESTAMP - make_interval(mins => i)
+            FROM generate_series(1, 200000) i
+            """);
+        execute("""
+            INSERT INTO order_items (order_id, book_id, price, quantity)
+            SELECT 1 + i % 200000, 1 + i % 50000, 10, 1
+            FROM generate_series(1, 400000) i
+            """);
+        execute("ANALYZE");
+    }
+
+    private static final Instant NOW = Instant.now();
+
+    private static final String ORDER_ITEMS_BY_ORDER = "idx_order_items_order_id";
+    private static final String ORDERS_BY_USER = "idx_orders_user_id_created_at";
+
+    private static final List<Arguments> repositoryQueries = List.of(
+        arguments(named("OrderItemRepository.findAllByOrderId", new RepositoryQuery(
+            test -> test.orderItemRepository.findAllByOrderId(4242L), List.of(ORDER_ITEMS_BY_ORDER)))),
+        arguments(named("BookRepository.findAllByIds", new RepositoryQuery(
+            test -> test.bookRepository.findAllByIds(new Long[]{1L, 2L, 3L}), List.of("books_pkey")))),
+        arguments(named("BookRepository.findPage filtered by type", new RepositoryQuery(
+            test -> test.bookRepository.findPage(BookType.REGULAR, null, null, 25000, 21), List.of("books_pkey")))),
+        arguments(named("UserRepository.findById", new RepositoryQuery(
+            test -> test.userRepository.findById(42L), List.of("users_pkey")))),
+        arguments(named("OrderRepository.findPageWithItems filtered by user", new RepositoryQuery(
+            test -> test.orderRepository.findPageWithItems(42L, null, null, 0, 21),
+            List.of(ORDERS_BY_USER, ORDER_ITEMS_BY_ORDER)))),
+        arguments(named("OrderRepository.findPageWithItems filtered by user and date range", new RepositoryQuery(
+            test -> test.orderRepository.findPageWithItems(42L, NOW.minus(Duration.ofDays(30)), NOW, 0, 21),
+            List.of(ORDERS_BY_USER, ORDER_ITEMS_BY_ORDER)))),
+        arguments(named("OrderRepository.findPageWithItems next page", new RepositoryQuery(
+            test -> test.orderRepository.findPageWithItems(null, null, null, 150000, 21),
+            List.of("orders_pkey", ORDER_ITEMS_BY_ORDER))))
+    );
+
+    /**
+     * Runs the repository call, then plans every statement it sent as PostgreSQL recorded it, with its bind
+     * parameters left open, so the check follows any change to the repositories' SQL.
+     */
+    @ParameterizedTest
+    @FieldSource("repositoryQueries")
+    void test_repository_query__planned_on_expected_indexes(RepositoryQuery repositoryQuery) {
+        execute("SELECT pg_stat_statements_reset()");
+
+        Flux.from(repositoryQuery.call().apply(this)).blockLast();
+
+        var statements = issuedStatements();
+        assertThat(statements).isNotEmpty();
+        var plans = new ArrayList<String>();
+        for (var sql : statements) {
+            var plan = String.join("\n", postgresTemplate.getDatabaseClient()
+                .sql("EXPLAIN (GENERIC_PLAN) " + sql)
+                .map(row -> row.get(0, String.class))
+                .all()
+                .collectList()
+                .block());
+
+            assertThat(plan).as(sql).doesNotContain("Seq Scan");
+            plans.add(plan);
+        }
+        assertThat(String.join("\n", plans)).as(String.join("\n", statements))
+            .contains(repositoryQuery.expectedIndexes());
+    }
+
+    private List<String> issuedStatements() {
+        // Driver lookups in the system catalogs, e.g. of enum types on a new connection, are not repository queries
+        return postgresTemplate.getDatabaseClient()
+            .sql("""
+                SELECT query FROM pg_stat_statements
+                WHERE dbid = (SELECT oid FROM pg_database WHERE datname = current_database())
+                  AND query NOT LIKE '%pg_stat_statements%'
+                  AND query NOT LIKE '%pg_catalog%'
+                """)
+            .map(row -> row.get("query", String.class))
+            .all()
+            .collectList()
+            .block();
+    }
+
+    private void execute(String sql) {
+        postgresTemplate.getDatabaseClient()
+            .sql(sql)
+            .fetch()
+            .rowsUpdated()
+            .block();
+    }
+
+    /**
+     * @param call            the repository call whose statements are planned
+     * @param expectedIndexes indexes the plans of those statements must use
+     */
+    private record RepositoryQuery(Function<QueryPlanTest, Publisher<?>> call, List<String> expectedIndexes) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.exceptions.types.CheckoutQueueFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CheckoutLanesTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CheckoutLanes checkoutLanes = new CheckoutLanes(meterRegistry, 3);
+
+    @Test
+    void test_submit_same_user__runs_one_checkout_at_a_time_in_order() {
+        var started = new ArrayList<Integer>();
+        var first = Sinks.<String>one();
+        var second = Sinks.<String>one();
+
+        var firstResult = checkoutLanes.submit(1L, checkout(started, 1, first)).toFuture();
+        var secondResult = checkoutLanes.submit(1L, checkout(started, 2, second)).toFuture();
+
+        assertThat(started).containsExactly(1);
+
+        first.tryEmitValue("first");
+        assertThat(firstResult).isCompletedWithValue("first");
+        assertThat(started).containsExactly(1, 2);
+
+        second.tryEmitValue("second");
+        assertThat(secondResult).isCompletedWithValue("second");
+        assertThat(meterRegistry.get(CheckoutLanes.QUEUE_WAIT_TIMER).timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void test_submit_other_users__run_concurrently() {
+        var started = new ArrayList<Integer>();
+
+        checkoutLanes.submit(1L, checkout(started, 1, Sinks.one())).subscribe();
+        checkoutLanes.submit(2L, checkout(started, 2, Sinks.one())).subscribe();
+
+        assertThat(started).containsExactly(1, 2);
+    }
+
+    @Test
+    void test_submit_full_lane__rejected_immediately() {
+        var running = Sinks.<String>one();
+        checkoutLanes.submit(1L, checkout(new ArrayList<>(), 1, running)).subscribe();
+        checkoutLanes.submit(1L, Mono.just("queued")).subscribe();
+        checkoutLanes.submit(1L, Mono.just("queued")).subscribe();
+
+        StepVerifier.create(checkoutLanes.submit(1L, Mono.just("rejected")))
+            .expectError(CheckoutQueueFullException.class)
+            .verify();
+        assertThat(meterRegistry.get(CheckoutLanes.REJECTED_COUNTER).counter().count()).isEqualTo(1);
+
+        running.tryEmitValue("done");
+        StepVerifier.create(checkoutLanes.submit(1L, Mono.just("accepted")))
+            .expectNext("accepted")
+            .verifyComplete();
+    }
+
+    @Test
+    void test_submit_failed_or_cancelled_checkout__next_checkout_still_runs() {
+        var lanes = new CheckoutLanes(meterRegistry, 4);
+        var subscriptions = new AtomicInteger();
+        var running = Sinks.<String>one();
+        var first = lanes.submit(1L, running.asMono()).subscribe();
+        var cancelledWhileWaiting = lanes.submit(1L, Mono.fromRunnable(subscriptions::incrementAndGet)).subscribe();
+        var failing = lanes.submit(1L, Mono.<String>error(new IllegalStateException())).toFuture();
+        var last = lanes.submit(1L, Mono.just("last")).toFuture();
+
+        cancelledWhileWaiting.dispose();
+        first.dispose();
+
+        assertThat(subscriptions).hasValue(0);
+        assertThat(failing).isCompletedExceptionally();
+        assertThat(last).isCompletedWithValue("last");
+    }
+
+    private static Mono<String> checkout(List<Integer> started, int id, Sinks.One<String> result) {
+        return Mono.defer(() -> {
+            started.add(id);
+            return result.asMono();
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.entities.OrderEvent;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryOrderEventSinkTest {
+
+    private final InMemoryOrderEventSink sink = new InMemoryOrderEventSink();
+
+    @Test
+    void test_publish_without_subscribers__dropped() {
+        sink.publish(List.of(event(1))).block();
+
+        StepVerifier.create(sink.events())
+            .then(() -> sink.publish(List.of(event(2))).block())
+            .assertNext(event -> assertThat(event.getId()).isEqualTo(2))
+            .thenCancel()
+            .verify();
+    }
+
+    @Test
+    void test_publish_to_subscriber_without_demand__sink_keeps_working() {
+        var stalled = new BaseSubscriber<OrderEvent>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // Requests nothing, like a client that stopped reading
+            }
+        };
+        sink.events().subscribe(stalled);
+
+        sink.publish(List.of(event(1))).block();
+
+        StepVerifier.create(sink.events())
+            .then(() -> sink.publish(List.of(event(2))).block())
+            .assertNext(event -> assertThat(event.getId()).isEqualTo(2))
+            .thenCancel()
+            .verify();
+        stalled.dispose();
+    }
+
+    @Test
+    void test_publish_concurrent_batches__all_delivered() {
+        var received = sink.events().take(1000).collectList().toFuture();
+
+        Flux.range(0, 10)
+            .flatMap(batch -> sink.publish(LongStream.range(batch * 100L, batch * 100L + 100).mapToObj(this::event).toList())
+                .subscribeOn(Schedulers.parallel()))
+            .blockLast();
+
+        assertThat(received.join()).hasSize(1000);
+    }
+
+    private OrderEvent event(long id) {
+        var event = new OrderEvent();
+        event.setId(id);
+        event.setOrderId(id);
+        event.setEventType(OrderEvent.ORDER_CREATED);
+        event.setPayload("{}");
+        return event;
+    }
+}
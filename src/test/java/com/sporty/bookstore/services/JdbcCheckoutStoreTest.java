@@ -0,0 +1,198 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.dtos.BookData;
+import com.sporty.bookstore.dtos.BookItem;
+import com.sporty.bookstore.dtos.OrderDetails;
+import com.sporty.bookstore.dtos.UserData;
+import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.entities.Order;
+import com.sporty.bookstore.entities.User;
+import com.sporty.bookstore.exceptions.ErrorResponse;
+import com.sporty.bookstore.models.BookType;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs checkouts with the {@code jdbc} profile. The HikariCP pool's acquisition count shows that a checkout
+ * went over JDBC.
+ */
+@Testcontainers
+@ActiveProfiles("jdbc")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class JdbcCheckoutStoreTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:17.4-alpine");
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private R2dbcEntityTemplate postgresTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CheckoutStore checkoutStore;
+
+    @Autowired
+    private BookCatalogueCache bookCatalogueCache;
+
+    @Autowired
+    private IdempotentOrderService idempotentOrderService;
+
+    private User user;
+    private Book book;
+
+    @BeforeEach
+    void beforeEach() {
+        user = webTestClient.post().uri("/users")
+            .bodyValue(new UserData("Test", BigDecimal.valueOf(1000, 2)))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(User.class)
+            .returnResult()
+            .getResponseBody();
+        book = webTestClient.post().uri("/books")
+            .bodyValue(new BookData("Java", BigDecimal.valueOf(300, 2), "REGULAR"))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(Book.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    @AfterEach
+    void cleanUpDatabase() {
+        postgresTemplate.getDatabaseClient()
+            .sql("TRUNCATE TABLE books, users RESTART IDENTITY CASCADE")
+            .fetch()
+            .rowsUpdated()
+            .block();
+        bookCatalogueCache.invalidateAll();
+        idempotentOrderService.invalidateAll();
+    }
+
+    @Test
+    void test_jdbc_profile__uses_jdbc_checkout_store() {
+        assertThat(checkoutStore).isInstanceOf(JdbcCheckoutStore.class);
+    }
+
+    @Test
+    void test_create_order__written_over_jdbc() {
+        var acquisitions = acquisitions();
+
+        var order = webTestClient.post().uri("/orders")
+            .bodyValue(new OrderDetails(user.getId(), null, List.of(new BookItem(book.getId(), 2))))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(Order.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertThat(acquisitions()).isGreaterThan(acquisitions);
+        assertThat(order.getTotalPrice()).isEqualTo(BigDecimal.valueOf(600, 2));
+        assertThat(order.getOrderItems())
+            .singleElement()
+            .satisfies(item -> {
+                assertThat(item.getOrderId()).isEqualTo(order.getId());
+                assertThat(item.getBookId()).isEqualTo(book.getId());
+                assertThat(item.getQuantity()).isEqualTo(2);
+            });
+        assertThat(getUser().getBalance()).isEqualTo(BigDecimal.valueOf(400, 2));
+        assertThat(getUser().getLoyalty()).isEqualTo(2);
+        assertThat(count("SELECT COUNT(*) FROM user_order_stats WHERE user_id = " + user.getId())).isEqualTo(1);
+        assertThat(count("SELECT COUNT(*) FROM order_events WHERE order_id = " + order.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void test_load_books_for_pricing__read_over_jdbc() {
+        bookCatalogueCache.invalidateAll();
+        var acquisitions = acquisitions();
+
+        var books = bookCatalogueCache.findAllById(Set.of(book.getId())).block();
+
+        assertThat(acquisitions()).isGreaterThan(acquisitions);
+        assertThat(books.get(book.getId()))
+            .satisfies(loaded -> {
+                assertThat(loaded.getTitle()).isEqualTo("Java");
+                assertThat(loaded.getPrice()).isEqualTo(BigDecimal.valueOf(300, 2));
+                assertThat(loaded.getType()).isEqualTo(BookType.REGULAR);
+            });
+    }
+
+    @Test
+    void test_create_order_insufficient_balance__rolled_back() {
+        webTestClient.post().uri("/orders")
+            .bodyValue(new OrderDetails(user.getId(), null, List.of(new BookItem(book.getId(), 4))))
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(ErrorResponse.class)
+            .value(error -> assertThat(error.message()).isEqualTo("User has insufficient balance"));
+
+        assertThat(getUser().getBalance()).isEqualTo(BigDecimal.valueOf(1000, 2));
+        assertThat(count("SELECT COUNT(*) FROM orders")).isZero();
+    }
+
+    @Test
+    void test_create_order_with_idempotency_key__created_once() {
+        var first = createOrder("jdbc-order-1");
+        var replay = createOrder("jdbc-order-1");
+
+        assertThat(replay.getId()).isEqualTo(first.getId());
+        assertThat(count("SELECT COUNT(*) FROM orders")).isEqualTo(1);
+        assertThat(getUser().getBalance()).isEqualTo(BigDecimal.valueOf(700, 2));
+    }
+
+    private Order createOrder(String idempotencyKey) {
+        return webTestClient.post().uri("/orders")
+            .header(IdempotentOrderService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+            .bodyValue(new OrderDetails(user.getId(), null, List.of(new BookItem(book.getId(), 1))))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(Order.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private User getUser() {
+        return webTestClient.get().uri("/users/%d".formatted(user.getId()))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(User.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    private long count(String sql) {
+        return postgresTemplate.getDatabaseClient()
+            .sql(sql)
+            .map(row -> row.get(0, Long.class))
+            .one()
+            .block();
+    }
+
+    private long acquisitions() {
+        var timer = meterRegistry.find("hikaricp.connections.acquire").tag("pool", "checkout").timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,114 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.dtos.BookItem;
+import com.sporty.bookstore.dtos.BookPriceItem;
+import com.sporty.bookstore.dtos.OrderDetails;
+import com.sporty.bookstore.dtos.OrderPriceInfo;
+import com.sporty.bookstore.entities.Book;
+import com.sporty.bookstore.models.BookType;
+import com.sporty.bookstore.utils.DiscountUtil;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PricingEngineTest {
+
+    private final PricingEngine pricingEngine = new PricingEngine();
+
+    static LongStream seeds() {
+        return LongStream.range(0, 500);
+    }
+
+    @ParameterizedTest
+    @MethodSource("seeds")
+    void test_calculate_book_prices_random_orders__matches_discount_util(long seed) {
+        var random = new Random(seed);
+        var types = BookType.values();
+
+        Map<Long, Book> booksMap = new LinkedHashMap<>();
+        var items = new ArrayList<BookItem>();
+        int distinctBooks = 1 + random.nextInt(random.nextBoolean() ? 3 : 50);
+        for (long id = 1; id <= distinctBooks; id++) {
+            var book = new Book();
+            book.setId(id);
+            book.setTitle("Book " + id);
+            book.setType(types[random.nextInt(types.length)]);
+            // Prices with up to 4 decimals exercise HALF_UP rounding of the discounted price
+            book.setPrice(BigDecimal.valueOf(random.nextInt(1_000_000), random.nextInt(5)));
+            booksMap.put(id, book);
+
+            // Repeated lines for the same book are merged into one quantity
+            int lines = 1 + random.nextInt(2);
+            for (int line = 0; line < lines; line++) {
+                items.add(new BookItem(id, 1 + random.nextInt(10)));
+            }
+        }
+
+        var loyaltyCandidates = booksMap.values().stream()
+            .filter(book -> book.getType() != BookType.NEW_RELEASES)
+            .map(Book::getId)
+            .toList();
+        var loyaltyBookId = !loyaltyCandidates.isEmpty() && random.nextBoolean()
+            ? loyaltyCandidates.get(random.nextInt(loyaltyCandidates.size()))
+            : null;
+
+        var orderDetails = new OrderDetails(seed + 1, loyaltyBookId, items);
+        var bookQuantityMap = items.stream()
+            .collect(Collectors.toMap(BookItem::bookId, BookItem::quantity, Integer::sum));
+
+        var actual = pricingEngine.calculateBookPrices(orderDetails, booksMap, bookQuantityMap);
+        var expected = referencePrices(orderDetails, booksMap, bookQuantityMap);
+
+        assertThat(actual.userId()).isEqualTo(expected.userId());
+        assertThat(actual.totalPrice()).isEqualTo(expected.totalPrice());
+        assertThat(actual.items()).containsExactlyElementsOf(expected.items());
+        assertThat(actual.items()).extracting(BookPriceItem::price)
+            .containsExactlyElementsOf(expected.items().stream().map(BookPriceItem::price).toList());
+    }
+
+    /**
+     * The pricing as it was implemented in {@link OrderService} before {@link PricingEngine}.
+     */
+    private static OrderPriceInfo referencePrices(OrderDetails orderDetails, Map<Long, Book> booksMap,
+                                                  Map<Long, Integer> bookQuantityMap) {
+        return booksMap.values().stream()
+            .flatMap(book -> referenceBookPrices(book, orderDetails.loyaltyBookId(), bookQuantityMap))
+            .collect(Collectors.teeing(
+                Collectors.reducing(BigDecimal.ZERO, item -> item.price().multiply(BigDecimal.valueOf(item.quantity())), BigDecimal::add),
+                Collectors.toList(),
+                (total, items) -> new OrderPriceInfo(orderDetails.userId(), total, items)
+            ));
+    }
+
+    private static Stream<BookPriceItem> referenceBookPrices(Book book, Long loyaltyBookId, Map<Long, Integer> bookQuantityMap) {
+        int quantity = bookQuantityMap.get(book.getId());
+        if (!book.getId().equals(loyaltyBookId)) {
+            return Stream.of(referenceBookPrice(book, quantity, bookQuantityMap));
+        }
+
+        var loyaltyItem = new BookPriceItem(book.getId(), BigDecimal.ZERO, 100, 1);
+        return quantity > 1
+            ? Stream.of(loyaltyItem, referenceBookPrice(book, quantity - 1, bookQuantityMap))
+            : Stream.of(loyaltyItem);
+    }
+
+    private static BookPriceItem referenceBookPrice(Book book, int quantity, Map<Long, Integer> bookQuantityMap) {
+        int bundleSize = bookQuantityMap.values().stream()
+            .mapToInt(Integer::intValue)
+            .sum();
+
+        var discount = DiscountUtil.getDiscount(book, bundleSize);
+
+        return new BookPriceItem(book.getId(), DiscountUtil.applyDiscount(book.getPrice(), discount), discount.doubleValue(), quantity);
+    }
+}
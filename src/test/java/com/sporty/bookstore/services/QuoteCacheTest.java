@@ -0,0 +1,83 @@
+package com.sporty.bookstore.services;
+
+import com.sporty.bookstore.dtos.BookItem;
+import com.sporty.bookstore.dtos.OrderDetails;
+import com.sporty.bookstore.dtos.OrderPriceInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QuoteCacheTest {
+
+    private final QuoteCache quoteCache = new QuoteCache(new SimpleMeterRegistry(), Duration.ofMinutes(1), 100);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void test_invalidate_user__only_quotes_of_user_reloaded() {
+        var userQuote = new OrderDetails(1L, null, List.of(new BookItem(1L, 1)));
+        var otherUserQuote = new OrderDetails(2L, null, List.of(new BookItem(1L, 1)));
+        quote(userQuote);
+        quote(otherUserQuote);
+
+        quoteCache.invalidateUser(1L);
+        quote(userQuote);
+        quote(otherUserQuote);
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void test_invalidate_book__only_quotes_with_book_reloaded() {
+        var bookQuote = new OrderDetails(1L, null, List.of(new BookItem(1L, 1), new BookItem(2L, 1)));
+        var otherBookQuote = new OrderDetails(1L, null, List.of(new BookItem(3L, 1)));
+        quote(bookQuote);
+        quote(otherBookQuote);
+
+        quoteCache.invalidateBook(2L);
+        quote(bookQuote);
+        quote(otherBookQuote);
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void test_invalidate_user_twice__quote_cached_again_evicted() {
+        var userQuote = new OrderDetails(1L, null, List.of(new BookItem(1L, 1)));
+        quote(userQuote);
+
+        quoteCache.invalidateUser(1L);
+        quote(userQuote);
+        quoteCache.invalidateUser(1L);
+        quote(userQuote);
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void test_failed_quote__not_cached_and_evicted_with_user() {
+        var userQuote = new OrderDetails(1L, null, List.of(new BookItem(1L, 1)));
+        quoteCache.get(userQuote, details -> Mono.error(new IllegalStateException("failed")))
+            .onErrorResume(IllegalStateException.class, error -> Mono.empty())
+            .block();
+
+        quote(userQuote);
+        quoteCache.invalidateUser(1L);
+        quote(userQuote);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private void quote(OrderDetails orderDetails) {
+        quoteCache.get(orderDetails, details -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return new OrderPriceInfo(details.userId(), BigDecimal.ONE, List.of());
+        })).block();
+    }
+}